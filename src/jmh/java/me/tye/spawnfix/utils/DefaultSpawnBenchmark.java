@@ -0,0 +1,46 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures getting the default spawn, which is done for every first join & every respawn without a bed.<br>
+ The configs are loaded from the default on a fake server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultSpawnBenchmark {
+
+private LoadSimulation simulation;
+
+@Setup
+public void setup() {
+  simulation = new LoadSimulation();
+}
+
+@TearDown
+public void tearDown() {
+  simulation.disable();
+}
+
+@Benchmark
+public Location getDefaultSpawn() {
+  return Util.getDefaultSpawn();
+}
+
+/**
+ Resolves the world of the default spawn again each time, like after a reload or a world loading.
+ */
+@Benchmark
+public Location getDefaultSpawnResolved() {
+  Util.invalidateDefaultSpawn();
+  return Util.getDefaultSpawn();
+}
+
+}
@@ -0,0 +1,62 @@
+package me.tye.spawnfix.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures recording to the metrics histograms, which is done in every join & respawn handler & on every correction tick.<br>
+ The threaded benchmark records from several threads at once, as the histograms are recorded to without locking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+/**
+ The amount of values that are recorded in a cycle.
+ */
+private static final int values = 4096;
+
+private Histogram histogram;
+private long[] nanos;
+
+@Setup
+public void setup() {
+  //The same buckets as the nanoseconds histograms in Metrics.
+  histogram = new Histogram(1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000, 10_000_000, 50_000_000);
+
+  Random random = new Random(42);
+  nanos = new long[values];
+  for (int i = 0; i < values; i++) {
+    //Spread over every bucket, including the overflow bucket.
+    nanos[i] = (long) Math.pow(10, 2 + random.nextDouble()*6);
+  }
+}
+
+@State(Scope.Thread)
+public static class Cursor {
+  int next = 0;
+}
+
+@Benchmark
+public void record(Cursor cursor) {
+  histogram.record(nanos[cursor.next++ & (values-1)]);
+}
+
+@Benchmark
+@Threads(4)
+public void recordContended(Cursor cursor) {
+  histogram.record(nanos[cursor.next++ & (values-1)]);
+}
+
+@Benchmark
+public long quantileBound() {
+  return histogram.quantileBound(0.99);
+}
+
+}
@@ -0,0 +1,46 @@
+package me.tye.spawnfix.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures getting responses from the loaded lang file, which is done for every message & warning sent.<br>
+ The lang file is loaded from the default on a fake server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LangBenchmark {
+
+private LoadSimulation simulation;
+
+private String value;
+
+@Setup
+public void setup() {
+  simulation = new LoadSimulation();
+
+  //Changes between runs, so the values aren't constant folded.
+  value = Long.toString(System.nanoTime());
+}
+
+@TearDown
+public void tearDown() {
+  simulation.disable();
+}
+
+@Benchmark
+public String getResponseWithoutKeys() {
+  return Lang.commands_reload.getResponse();
+}
+
+@Benchmark
+public String getResponseWithKeys() {
+  return Lang.excepts_missingKey.getResponse(Key.key.replaceWith(value), Key.filePath.replaceWith("plugins/SpawnFix/config.yml"));
+}
+
+}
@@ -0,0 +1,129 @@
+package me.tye.spawnfix.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures the location store, which is read on every login & written on every logout & checkpoint.<br>
+ The store is kept in a temporary file, so the results depend on the page cache of the machine they're run on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedLocationStoreBenchmark {
+
+/**
+ The amount of players with a stored location.
+ */
+@Param({"1000", "100000"})
+public int records;
+
+/**
+ The amount of players that are looked up in a cycle.
+ */
+private static final int lookups = 4096;
+
+/**
+ The amount of slots checked in each batch of a scan, the same as in BulkOperations.
+ */
+private static final int scanBatch = 4096;
+
+private static final UUID world = new UUID(1, 2);
+
+private Path folder;
+private MappedLocationStore store;
+
+private UUID[] stored;
+private UUID[] absent;
+private StoredLocation location;
+private int next = 0;
+
+@Setup
+public void setup() throws IOException {
+  folder = Files.createTempDirectory("spawnfix-bench");
+  store = new MappedLocationStore(folder.resolve("locations.dat").toFile());
+
+  Random random = new Random(42);
+  location = new StoredLocation(world, 12.5, 64, -3.5, 90, 0);
+
+  stored = new UUID[lookups];
+  for (int i = 0; i < records; i++) {
+    UUID player = new UUID(random.nextLong(), random.nextLong());
+    store.put(player, new StoredLocation(world, i, 64, -i, 0, 0));
+
+    if (i < lookups) stored[i] = player;
+  }
+
+  //There can be fewer records than lookups.
+  for (int i = records; i < lookups; i++) {
+    stored[i] = stored[i % records];
+  }
+
+  absent = new UUID[lookups];
+  for (int i = 0; i < lookups; i++) {
+    absent[i] = new UUID(random.nextLong(), random.nextLong());
+  }
+}
+
+@TearDown
+public void tearDown() throws IOException {
+  store.close();
+
+  File[] files = folder.toFile().listFiles();
+  if (files != null) {
+    for (File file : files) {
+      Files.deleteIfExists(file.toPath());
+    }
+  }
+
+  Files.deleteIfExists(folder);
+}
+
+@Benchmark
+public StoredLocation getStored() {
+  return store.get(stored[next++ & (lookups-1)]);
+}
+
+@Benchmark
+public StoredLocation getAbsent() {
+  return store.get(absent[next++ & (lookups-1)]);
+}
+
+/**
+ Overwrites the location of a player that is already stored, as is done when they log out.
+ */
+@Benchmark
+public void putStored() throws IOException {
+  store.put(stored[next++ & (lookups-1)], location);
+}
+
+/**
+ Visits every record in batches, as a bulk operation does over several ticks.
+ */
+@Benchmark
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public long scanAll() throws IOException {
+  long[] visited = {0};
+  long cursor = 0;
+
+  while (cursor != -1) {
+    cursor = store.scan(cursor, scanBatch, (player, visiting) -> {
+      visited[0]++;
+      return null;
+    });
+  }
+
+  return visited[0];
+}
+
+}
@@ -0,0 +1,76 @@
+package me.tye.spawnfix.utils;
+
+import me.tye.spawnfix.PlayerJoin;
+import org.bukkit.Location;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures the join listener working out where a player should be corrected to & scheduling the correction.<br>
+ The plugin is enabled with the default configs on a fake server. The corrections are never run, so each join replaces the last correction of that player.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerJoinBenchmark {
+
+/**
+ Whether the players have a stored logout location, or are corrected to the default spawn.
+ */
+@Param({"true", "false"})
+public boolean returning;
+
+/**
+ The amount of players that join in a cycle. This is more than the location store keeps cached, so most locations are read from the store.
+ */
+private static final int players = 4096;
+
+/**
+ The amount of ticks between the location store writing its pending locations.
+ */
+private static final int flushTicks = 100;
+
+private LoadSimulation simulation;
+private PlayerJoinEvent[] joins;
+private int next = 0;
+
+@Setup
+public void setup() {
+  simulation = new LoadSimulation();
+  Location spawn = new Location(simulation.world.proxy, 0, 64, 0);
+
+  joins = new PlayerJoinEvent[players];
+  for (int i = 0; i < players; i++) {
+    FakeServer.FakePlayer player = simulation.joinNew(spawn);
+    joins[i] = new PlayerJoinEvent(player.proxy, null);
+
+    if (!returning) continue;
+
+    player.move(new Location(simulation.world.proxy, i, 70, -i));
+    simulation.quit(player);
+    simulation.join(player, spawn);
+  }
+
+  //Writes the logout locations to the store.
+  for (int i = 0; i < flushTicks; i++) {
+    simulation.tick();
+  }
+}
+
+@TearDown
+public void tearDown() {
+  simulation.disable();
+}
+
+@Benchmark
+public void join() {
+  PlayerJoin.PlayerSpawn(joins[next]);
+  next = (next + 1) % players;
+}
+
+}
@@ -0,0 +1,65 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures finding the named spawn nearest to where a player died, which is done on every respawn.<br>
+ The locations don't have a world, as the index only reads their coordinates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnIndexBenchmark {
+
+/**
+ The amount of named spawns in the world.
+ */
+@Param({"10", "1000", "100000"})
+public int spawns;
+
+/**
+ The amount of positions that are looked up in a cycle.
+ */
+private static final int lookups = 4096;
+
+private static final double radius = 30_000;
+
+private SpawnIndex index;
+private double[] xs;
+private double[] zs;
+private int next = 0;
+
+@Setup
+public void setup() {
+  Random random = new Random(42);
+
+  ArrayList<Location> locations = new ArrayList<>(spawns);
+  for (int i = 0; i < spawns; i++) {
+    locations.add(new Location(null, (random.nextDouble()*2-1) * radius, 64, (random.nextDouble()*2-1) * radius));
+  }
+
+  index = new SpawnIndex(locations);
+
+  xs = new double[lookups];
+  zs = new double[lookups];
+  for (int i = 0; i < lookups; i++) {
+    xs[i] = (random.nextDouble()*2-1) * radius;
+    zs[i] = (random.nextDouble()*2-1) * radius;
+  }
+}
+
+@Benchmark
+public Location nearest() {
+  int i = next++ & (lookups-1);
+  return index.nearest(xs[i], zs[i]);
+}
+
+}
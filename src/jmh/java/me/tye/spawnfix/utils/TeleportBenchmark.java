@@ -0,0 +1,70 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures running a correction once, which the correction engine does for every pending correction that is due on a tick.<br>
+ The player & their world are faked, so the results don't include the cost of a real teleport.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeleportBenchmark {
+
+private LoadSimulation simulation;
+private FakeServer.FakePlayer player;
+
+/**
+ Only checks the player, as they're already at the location.
+ */
+private Teleport check;
+
+/**
+ Teleports the player every time, as it doesn't verify.
+ */
+private Teleport teleport;
+
+private long tick = 0;
+
+@Setup
+public void setup() {
+  simulation = new LoadSimulation();
+
+  Location target = new Location(simulation.world.proxy, 12.5, 64, -3.5);
+  simulation.world.loadChunk(target);
+  player = simulation.joinNew(target);
+
+  check = new Teleport(player.uuid, target, 0, false, Integer.MAX_VALUE, true);
+  teleport = new Teleport(player.uuid, target, 0, false, Integer.MAX_VALUE, false);
+}
+
+/**
+ The fake player records every teleport, so the records are thrown away between iterations.
+ */
+@Setup(Level.Iteration)
+public void forgetTeleports() {
+  player.teleportTicks().clear();
+}
+
+@TearDown
+public void tearDown() {
+  simulation.disable();
+}
+
+@Benchmark
+public boolean runCheck() {
+  return check.run(tick++);
+}
+
+@Benchmark
+public boolean runTeleport() {
+  return teleport.run(tick++);
+}
+
+}
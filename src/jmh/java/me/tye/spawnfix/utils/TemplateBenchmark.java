@@ -0,0 +1,54 @@
+package me.tye.spawnfix.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures filling in compiled lang responses, which is done for every response sent.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+private Template literal;
+private Template onePlaceholder;
+private Template manyPlaceholders;
+
+private String value;
+
+@Setup
+public void setup() {
+  literal = Template.compile("The config has been reloaded.");
+  onePlaceholder = Template.compile("Unable to find the world \"{worldName}\".");
+  manyPlaceholders = Template.compile("{name}: {value}, mean {mean}, p99 {p99}. Read from \"{filePath}\".");
+
+  //Changes between runs, so the values aren't constant folded.
+  value = Long.toString(System.nanoTime());
+}
+
+@Benchmark
+public String renderLiteral() {
+  return literal.render();
+}
+
+@Benchmark
+public String renderOnePlaceholder() {
+  return onePlaceholder.render(Key.worldName.replaceWith(value));
+}
+
+@Benchmark
+public String renderManyPlaceholders() {
+  return manyPlaceholders.render(
+      Key.name.replaceWith("joins"),
+      Key.value.replaceWith(value),
+      Key.mean.replaceWith(value),
+      Key.p99.replaceWith(value),
+      Key.filePath.replaceWith("plugins/SpawnFix/metrics.prom"));
+}
+
+}
@@ -0,0 +1,86 @@
+package me.tye.spawnfix.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures looking up whether a player has joined before, which the {@link JoinIndex} does on every login.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidSetBenchmark {
+
+/**
+ The amount of players that have joined before.
+ */
+@Param({"1000", "100000", "1000000"})
+public int joined;
+
+/**
+ The amount of uuids that are looked up in a cycle, so the lookups aren't all for one slot.
+ */
+private static final int lookups = 4096;
+
+private UuidSet set;
+private UUID[] present;
+private UUID[] absent;
+private int next = 0;
+
+@Setup
+public void setup() {
+  Random random = new Random(42);
+  set = new UuidSet(joined);
+
+  present = new UUID[lookups];
+  for (int i = 0; i < joined; i++) {
+    UUID uuid = new UUID(random.nextLong(), random.nextLong());
+    set.add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+
+    if (i < lookups) present[i] = uuid;
+  }
+
+  //There can be fewer joined players than lookups.
+  for (int i = joined; i < lookups; i++) {
+    present[i] = present[i % joined];
+  }
+
+  absent = new UUID[lookups];
+  for (int i = 0; i < lookups; i++) {
+    absent[i] = new UUID(random.nextLong(), random.nextLong());
+  }
+}
+
+@Benchmark
+public boolean containsJoined() {
+  UUID uuid = present[next++ & (lookups-1)];
+  return set.contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+}
+
+@Benchmark
+public boolean containsNew() {
+  UUID uuid = absent[next++ & (lookups-1)];
+  return set.contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+}
+
+/**
+ Fills a new set, as is done when the join index is loaded.
+ */
+@Benchmark
+@OperationsPerInvocation(lookups)
+public UuidSet fill() {
+  UuidSet filling = new UuidSet(16);
+  for (UUID uuid : absent) {
+    filling.add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+  }
+
+  return filling;
+}
+
+}
@@ -0,0 +1,165 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Measures the single pass that {@link Util#writeYamlData(Map, java.io.File)} makes over a yaml file, as the file grows.<br>
+ The six passes that /sf setSpawn used to make, one per key, are measured too as a baseline.
+ Reading the file & replacing it atomically aren't included, as they're bound by the disk rather than this code.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YamlEditsBenchmark {
+
+/**
+ The amount of sections in the yaml, each with a comment & a few keys, like the "worlds" section of the config.yml.
+ */
+@Param({"10", "100", "1000"})
+public int sections;
+
+private String content;
+private Map<String,String> oneEdit;
+private Map<String,String> setSpawnEdits;
+
+@Setup
+public void setup() {
+  StringBuilder yaml = new StringBuilder();
+  yaml.append("# The default spawn location.\n")
+      .append("default:\n")
+      .append("  worldName: \"world\"\n")
+      .append("  x: 0\n")
+      .append("  y: 64\n")
+      .append("  z: 0\n")
+      .append("  yaw: 0\n")
+      .append("  pitch: 0\n\n")
+      .append("worlds:\n");
+
+  for (int i = 0; i < sections; i++) {
+    yaml.append("  # Overrides for world_").append(i).append(".\n")
+        .append("  world_").append(i).append(":\n")
+        .append("    login: \"every\"\n")
+        .append("    onSpawn: \"every\"\n")
+        .append("    spawn:\n")
+        .append("      x: ").append(i).append('\n')
+        .append("      y: 64\n")
+        .append("      z: ").append(-i).append("\n\n");
+  }
+
+  content = yaml.toString();
+
+  //The last section is edited, so the whole file is walked before the key is found.
+  oneEdit = Map.of("worlds.world_"+(sections-1)+".spawn.x", "12.5");
+
+  //The edits that /sf setSpawn makes.
+  setSpawnEdits = new HashMap<>();
+  setSpawnEdits.put("default.worldName", "\"world_nether\"");
+  setSpawnEdits.put("default.x", "1.5");
+  setSpawnEdits.put("default.y", "70.0");
+  setSpawnEdits.put("default.z", "-3.5");
+  setSpawnEdits.put("default.yaw", "90.0");
+  setSpawnEdits.put("default.pitch", "0.0");
+}
+
+@Benchmark
+public String replaceOneValue() throws IOException {
+  return YamlEdits.replaceValues(oneEdit, content);
+}
+
+@Benchmark
+public String replaceSetSpawnValues() throws IOException {
+  return YamlEdits.replaceValues(setSpawnEdits, content);
+}
+
+@Benchmark
+public String replaceSetSpawnValuesSixPasses() throws IOException {
+  String edited = content;
+  for (Map.Entry<String,String> edit : setSpawnEdits.entrySet()) {
+    edited = SixPasses.writeYamlData(edit.getKey(), edit.getValue(), edited);
+  }
+
+  return edited;
+}
+
+/**
+ How {@link Util#writeYamlData(String, String, java.io.File)} replaced a value before all the edits were made in one pass, without the file reads & writes.<br>
+ The content is split into lines again for each level of the key & each key is edited in its own pass, as it was then.
+ */
+private static final class SixPasses {
+
+  private static @NotNull String writeYamlData(@NotNull String key, @NotNull String value, @NotNull String fileContent) throws IOException {
+    //Ensures that every key ends with ":".
+    String[] keys = key.split("\\.");
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i].endsWith(":")) continue;
+      keys[i] += ":";
+    }
+
+    Integer valueStartPosition = findKeyPosition(keys, fileContent);
+    if (valueStartPosition == null) throw new IOException("Unable to find "+key+" in external Yaml file.");
+
+    int valueLineEnd = valueStartPosition;
+    while (fileContent.charAt(valueLineEnd) != '\n') {
+      valueLineEnd++;
+    }
+
+    //The old code dropped the last char of the file here, which doesn't change how long it took.
+    String firstPart = fileContent.substring(0, valueStartPosition);
+    String secondPart = fileContent.substring(valueLineEnd, fileContent.length()-1);
+
+    return firstPart.concat(value).concat(secondPart);
+  }
+
+  private static @Nullable Integer findKeyPosition(@NotNull String[] keys, @NotNull String fileContent) {
+    String[] split = fileContent.split("\n");
+
+    for (int keyLine = 0; keyLine < split.length; keyLine++) {
+      if (!split[keyLine].stripLeading().startsWith(keys[0])) continue;
+
+      return findKeyPosition(keys, keyLine+1, 1, fileContent);
+    }
+
+    return null;
+  }
+
+  private static @Nullable Integer findKeyPosition(@NotNull String[] keys, int startLine, int keyIndex, @NotNull String fileContent) {
+    String[] split = fileContent.split("\n");
+
+    for (int lineIndex = startLine; lineIndex < split.length; lineIndex++) {
+      String line = split[lineIndex];
+
+      if (!(line.startsWith(" ") || line.startsWith("\t"))) return null;
+
+      if (!line.stripLeading().startsWith(keys[keyIndex])) continue;
+
+      keyIndex++;
+
+      if (keyIndex == keys.length) {
+        int currentLinePosition = 0;
+        for (int i = 0; i < lineIndex; i++) {
+          currentLinePosition += split[i].length()+1;
+        }
+
+        for (int i = currentLinePosition; i < fileContent.length(); i++) {
+          if (fileContent.charAt(i) == ':') return i+2;
+        }
+      }
+
+      return findKeyPosition(keys, startLine, keyIndex, fileContent);
+    }
+
+    return null;
+  }
+}
+
+}
@@ -0,0 +1,165 @@
+package me.tye.spawnfix;
+
+import me.tye.spawnfix.utils.SafeLocations;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.Directional;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockDispenseEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+
+import java.util.List;
+
+/**
+ Removes the cached safe locations that could have been changed when blocks change.<br>
+ Blocks can still be changed without an event, such as by other plugins, so cached locations are also checked again before they're used.
+ */
+public class BlockChange implements Listener {
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockPlace(BlockPlaceEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockBreak(BlockBreakEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockFlow(BlockFromToEvent e) {
+  SafeLocations.invalidate(e.getToBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockBurn(BlockBurnEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockIgnite(BlockIgniteEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockSpread(BlockSpreadEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockForm(BlockFormEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockFade(BlockFadeEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockExplode(BlockExplodeEvent e) {
+  for (Block block : e.blockList()) {
+    SafeLocations.invalidate(block);
+  }
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void entityExplode(EntityExplodeEvent e) {
+  for (Block block : e.blockList()) {
+    SafeLocations.invalidate(block);
+  }
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void bucketEmpty(PlayerBucketEmptyEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void bucketFill(PlayerBucketFillEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void pistonExtend(BlockPistonExtendEvent e) {
+  pistonMove(e.getBlock(), e.getBlocks(), e.getDirection(), e.getDirection());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void pistonRetract(BlockPistonRetractEvent e) {
+  //The direction of a retract is the way the piston faces, so the blocks are pulled the opposite way.
+  pistonMove(e.getBlock(), e.getBlocks(), e.getDirection(), e.getDirection().getOppositeFace());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void entityChangeBlock(EntityChangeBlockEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void blockDispense(BlockDispenseEvent e) {
+  Block dispenser = e.getBlock();
+
+  //Dispensers can place water, lava, fire or blocks in front of them.
+  if (dispenser.getBlockData() instanceof Directional directional) {
+    SafeLocations.invalidate(dispenser.getRelative(directional.getFacing()));
+  } else {
+    SafeLocations.invalidate(dispenser);
+  }
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void structureGrow(StructureGrowEvent e) {
+  for (BlockState state : e.getBlocks()) {
+    SafeLocations.invalidate(state.getBlock());
+  }
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void leavesDecay(LeavesDecayEvent e) {
+  SafeLocations.invalidate(e.getBlock());
+}
+
+@EventHandler(priority = EventPriority.MONITOR)
+public static void chunkUnload(ChunkUnloadEvent e) {
+  SafeLocations.unload(e.getWorld(), e.getChunk().getX(), e.getChunk().getZ());
+}
+
+/**
+ Removes the cached safe locations around the blocks moved by a piston.
+ * @param piston The piston.
+ * @param moved The blocks that the piston moved.
+ * @param facing The direction the piston faces.
+ * @param direction The direction the piston moved the blocks in.
+ */
+private static void pistonMove(Block piston, List<Block> moved, BlockFace facing, BlockFace direction) {
+  //The piston head is in front of the piston.
+  SafeLocations.invalidate(piston.getRelative(facing));
+
+  for (Block block : moved) {
+    SafeLocations.invalidate(block);
+    SafeLocations.invalidate(block.getRelative(direction));
+  }
+}
+
+}
@@ -0,0 +1,21 @@
+package me.tye.spawnfix;
+
+import me.tye.spawnfix.utils.Config;
+import me.tye.spawnfix.utils.CorrectionEngine;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+
+public class PlayerChangeWorld implements Listener {
+
+@EventHandler(priority = EventPriority.MONITOR)
+public static void playerChangeWorld(PlayerChangedWorldEvent e) {
+  if (!Config.get().teleportCancelOnWorldChange) return;
+
+  Player player = e.getPlayer();
+  CorrectionEngine.cancelIfOtherWorld(player.getUniqueId(), player.getWorld());
+}
+
+}
@@ -1,19 +1,27 @@
 package me.tye.spawnfix;
 
 import me.tye.spawnfix.utils.Config;
-import me.tye.spawnfix.utils.Teleport;
-import org.bukkit.Bukkit;
+import me.tye.spawnfix.utils.CorrectionEngine;
+import me.tye.spawnfix.utils.JoinIndex;
+import me.tye.spawnfix.utils.LastLocations;
+import me.tye.spawnfix.utils.LastLogin;
+import me.tye.spawnfix.utils.Metrics;
+import me.tye.spawnfix.utils.SafeLocations;
+import me.tye.spawnfix.utils.SpawnPool;
+import me.tye.spawnfix.utils.StoredLocation;
+import me.tye.spawnfix.utils.WorldOverrides;
 import org.bukkit.Location;
-import org.bukkit.NamespacedKey;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+import org.spigotmc.event.player.PlayerSpawnLocationEvent;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.UUID;
 import java.util.logging.Level;
 
@@ -21,44 +29,188 @@ import static me.tye.spawnfix.utils.Util.*;
 
 public class PlayerJoin implements Listener {
 
-private static final ArrayList<UUID> joined = new ArrayList<>();
+/**
+ The corrections worked out whilst players were spawning, for the join event to verify. These are only added if "teleport.setSpawnLocation" is true.
+ */
+private static final HashMap<UUID, SpawnCorrection> spawnCorrections = new HashMap<>();
+
+/**
+ The amount of nanoseconds after which a correction from a spawn event is thrown away, if the player never joined.
+ */
+private static final long staleNanos = 60_000_000_000L;
+
+/**
+ Spawns the player straight at their login location, rather than teleporting them there after they've joined.<br>
+ If "teleport.safeCheck" is true, the player is only spawned there if a safe location is already known, otherwise they are corrected once they've joined instead.<br>
+ This is late so other plugins have already set the location, as with teleporting.
+ */
+@EventHandler(priority = EventPriority.HIGHEST)
+public static void setSpawnLocation(PlayerSpawnLocationEvent e) {
+    if (!Config.get().teleportSetSpawnLocation) return;
+
+    forgetStale();
+
+    Player player = e.getPlayer();
+    forget(player.getUniqueId());
+
+    Correction correction = getCorrection(player, e.getSpawnLocation().getWorld());
+
+    Location spawnAt = correction.location;
+    if (spawnAt != null && Config.get().teleportSafeCheck) {
+        spawnAt = SafeLocations.findNow(spawnAt);
+    }
+
+    if (spawnAt == null) {
+        spawnCorrections.put(player.getUniqueId(), new SpawnCorrection(correction, false, System.nanoTime()));
+        return;
+    }
+
+    Correction spawned = new Correction(spawnAt, correction.firstJoin, correction.poolGeneration);
+    spawnCorrections.put(player.getUniqueId(), new SpawnCorrection(spawned, true, System.nanoTime()));
+
+    e.setSpawnLocation(spawnAt.clone());
+    Metrics.spawnsSet.increment();
+}
+
+/**
+ Throws away the correction worked out whilst the given player was spawning, if they leave before it was used.<br>
+ If the player was going to be spawned at a location from the random spawn pool, then it is put back so it isn't wasted.
+ * @param uuid The uuid of the given player.
+ */
+public static void forget(UUID uuid) {
+    SpawnCorrection pending = spawnCorrections.remove(uuid);
+    if (pending != null) giveBack(pending.correction);
+}
+
+/**
+ Throws away the corrections from spawn events that were never used, such as when the login was dropped before the player joined.
+ */
+private static void forgetStale() {
+    if (spawnCorrections.isEmpty()) return;
+
+    long now = System.nanoTime();
+    Iterator<SpawnCorrection> iterator = spawnCorrections.values().iterator();
+    while (iterator.hasNext()) {
+        SpawnCorrection pending = iterator.next();
+        if (now - pending.created < staleNanos) continue;
+
+        iterator.remove();
+        giveBack(pending.correction);
+    }
+}
+
+/**
+ Puts the location of the given correction back into the random spawn pool, if it was taken from there.
+ * @param correction The given correction.
+ */
+private static void giveBack(Correction correction) {
+    if (correction.location == null || correction.poolGeneration < 0) return;
+
+    SpawnPool.giveBack(correction.location, correction.poolGeneration);
+}
 
 @EventHandler
 public static void PlayerSpawn(PlayerJoinEvent e) {
-    Player player = e.getPlayer();
+    long start = System.nanoTime();
+
+    correctLogin(e.getPlayer());
+
+    Metrics.joins.increment();
+    Metrics.joinNanos.record(System.nanoTime() - start);
+}
+
+/**
+ Schedules the given player to be corrected to their last login location, or to the spawn of the world they joined in if they don't have one.<br>
+ If the player was spawned at the location already, then they are only checked to still be there.
+ * @param player The given player.
+ */
+private static void correctLogin(Player player) {
+    SpawnCorrection pending = spawnCorrections.remove(player.getUniqueId());
+
+    if (pending != null) {
+        Correction correction = pending.correction;
+
+        //If the player couldn't be spawned at a safe location yet, then the correction looks for one before teleporting them.
+        if (pending.spawnSet) {
+            CorrectionEngine.verify(player, correction.location, correction.firstJoin);
+        } else {
+            CorrectionEngine.schedule(player, correction.location, correction.firstJoin);
+        }
+
+    } else {
+        Correction correction = getCorrection(player, player.getWorld());
+
+        //Players joining for the first time are corrected before returning players during a join storm.
+        CorrectionEngine.schedule(player, correction.location, correction.firstJoin);
+    }
 
-    Config.Occurrence login = Config.login.getOccurrenceConfig();
+    //The player is only marked as joined once they have, so a login that was dropped whilst spawning still counts as their first.
+    JoinIndex.add(player.getUniqueId());
+}
+
+/**
+ Works out where the given player should be corrected to on login.<br>
+ This should only be called once per login, before the player is marked as joined.
+ * @param player The given player.
+ * @param world The world the player is joining in.
+ * @return Their last login location, or the spawn of the world if they don't have one. The location is null if they shouldn't be corrected.
+ */
+private static Correction getCorrection(Player player, World world) {
+    boolean joinedBefore = JoinIndex.contains(player.getUniqueId());
+
+    Config.Occurrence login = WorldOverrides.getLogin(world);
 
     //if login is never then always return.
     if (login == Config.Occurrence.NEVER) {
-        return;
+        return new Correction(null, false, -1);
     }
 
     //if the login is first, only teleport on the first join.
-    if (login == Config.Occurrence.FIRST && joined.contains(player.getUniqueId())) {
-        return;
+    if (login == Config.Occurrence.FIRST && joinedBefore) {
+        return new Correction(null, false, -1);
     }
 
-    PersistentDataContainer dataContainer = player.getPersistentDataContainer();
-
-    String lastLoginWorldName = dataContainer.get(new NamespacedKey(plugin, "lastloginworld"), PersistentDataType.STRING);
-    Double lastLoginX = dataContainer.get(new NamespacedKey(plugin, "lastloginx"), PersistentDataType.DOUBLE);
-    Double lastLoginY = dataContainer.get(new NamespacedKey(plugin, "lastloginy"), PersistentDataType.DOUBLE);
-    Double lastLoginZ = dataContainer.get(new NamespacedKey(plugin, "lastloginz"), PersistentDataType.DOUBLE);
-    Float lastLoginYaw = dataContainer.get(new NamespacedKey(plugin, "lastloginyaw"), PersistentDataType.FLOAT);
-    Float lastLoginPitch = dataContainer.get(new NamespacedKey(plugin, "lastloginpitch"), PersistentDataType.FLOAT);
+    //The location store is read first, as it's also used to change the location of offline players.
+    Location lastLogin = null;
+    StoredLocation stored = LastLocations.get(player.getUniqueId());
+    if (stored != null) {
+        lastLogin = stored.toLocation();
+    }
 
-    //Default to the default spawn location
-    Location properLocation = getDefaultSpawn();
+    //A cleared location means the last login location was reset, so the one in their player data isn't used either.
+    if (lastLogin == null && (stored == null || !stored.isCleared())) {
+        lastLogin = LastLogin.get(player);
+    }
 
-    //If the last login location can be parsed then the player is teleported to that instead.
-    if (lastLoginWorldName != null && lastLoginX != null && lastLoginY != null && lastLoginZ != null && lastLoginYaw != null && lastLoginPitch != null) {
-        properLocation = new Location(Bukkit.getWorld(lastLoginWorldName), lastLoginX, lastLoginY, lastLoginZ, lastLoginYaw, lastLoginPitch);
+    //If the last login location can be parsed then the player is teleported to that.
+    //Otherwise, default to the spawn location of the world. This is only looked up when it's used, as it can take a location from the random spawn pool.
+    if (lastLogin != null && lastLogin.getWorld() != null) {
+        return new Correction(lastLogin, false, -1);
     }
 
-    BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(plugin, new Teleport(player, properLocation), 2, Config.teleport_retryInterval.getIntegerConfig());
-    Teleport.runningTasks.put(player.getUniqueId(), bukkitTask);
+    //The generation of the pool is kept with locations taken from it, so they can be put back if the player never spawns there.
+    if (!WorldOverrides.overridesSpawn(world)) {
+        int poolGeneration = SpawnPool.generation();
+        Location random = SpawnPool.take();
+        if (random != null) return new Correction(random, true, poolGeneration);
+    }
 
-    joined.add(player.getUniqueId());
+    return new Correction(WorldOverrides.getSpawn(world), true, -1);
 }
+
+/**
+ Where a player should be corrected to on login.
+ * @param location The location to correct to, or null if they shouldn't be corrected.
+ * @param firstJoin Whether the player is being corrected to a spawn rather than their last login location.
+ * @param poolGeneration The generation of the random spawn pool the location was taken from, or -1 if it wasn't taken from the pool.
+ */
+private record Correction(@Nullable Location location, boolean firstJoin, int poolGeneration) {}
+
+/**
+ A correction worked out whilst a player was spawning.
+ * @param correction The correction.
+ * @param spawnSet Whether the player was spawned at the location of the correction.
+ * @param created The {@link System#nanoTime()} when the correction was worked out.
+ */
+private record SpawnCorrection(Correction correction, boolean spawnSet, long created) {}
 }
@@ -1,14 +1,15 @@
 package me.tye.spawnfix;
 
+import me.tye.spawnfix.utils.CorrectionEngine;
+import me.tye.spawnfix.utils.LastLocations;
+import me.tye.spawnfix.utils.LastLogin;
 import org.bukkit.Location;
-import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
-import org.bukkit.persistence.PersistentDataType;
-
-import static me.tye.spawnfix.utils.Util.plugin;
 
 public class PlayerLeave implements Listener {
 
@@ -17,20 +18,16 @@ public static void PlayerLeaveEvent(PlayerQuitEvent e) {
   Player player = e.getPlayer();
   Location logoutLocation = e.getPlayer().getLocation();
 
-  String worldName = logoutLocation.getWorld().getName();
-  double x = logoutLocation.getX();
-  double y = logoutLocation.getY();
-  double z = logoutLocation.getZ();
-  float yaw = logoutLocation.getYaw();
-  float pitch = logoutLocation.getPitch();
-
-  player.getPersistentDataContainer().set(new NamespacedKey(plugin, "lastloginworld"), PersistentDataType.STRING, worldName);
-  player.getPersistentDataContainer().set(new NamespacedKey(plugin, "lastloginx"), PersistentDataType.DOUBLE, x);
-  player.getPersistentDataContainer().set(new NamespacedKey(plugin, "lastloginy"), PersistentDataType.DOUBLE, y);
-  player.getPersistentDataContainer().set(new NamespacedKey(plugin, "lastloginz"), PersistentDataType.DOUBLE, z);
-  player.getPersistentDataContainer().set(new NamespacedKey(plugin, "lastloginyaw"), PersistentDataType.FLOAT, yaw);
-  player.getPersistentDataContainer().set(new NamespacedKey(plugin, "lastloginpitch"), PersistentDataType.FLOAT, pitch);
+  LastLogin.set(player, logoutLocation);
+  LastLocations.set(player.getUniqueId(), logoutLocation);
+  CorrectionEngine.cancel(player.getUniqueId());
+  PlayerJoin.forget(player.getUniqueId());
+}
 
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void PlayerKick(PlayerKickEvent e) {
+  CorrectionEngine.cancel(e.getPlayer().getUniqueId());
+  PlayerJoin.forget(e.getPlayer().getUniqueId());
 }
 
 }
@@ -1,14 +1,17 @@
 package me.tye.spawnfix;
 
 import me.tye.spawnfix.utils.Config;
-import me.tye.spawnfix.utils.Teleport;
-import org.bukkit.Bukkit;
+import me.tye.spawnfix.utils.CorrectionEngine;
+import me.tye.spawnfix.utils.Metrics;
+import me.tye.spawnfix.utils.SafeLocations;
+import me.tye.spawnfix.utils.SpawnRegistry;
+import me.tye.spawnfix.utils.WorldOverrides;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerRespawnEvent;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.util.logging.Level;
 
@@ -16,21 +19,60 @@ import static me.tye.spawnfix.utils.Util.*;
 
 public class PlayerRespawn implements Listener {
 
-@EventHandler
+/**
+ This is late so other plugins have already set the respawn location, as "teleport.setSpawnLocation" overrides it.
+ */
+@EventHandler(priority = EventPriority.HIGHEST)
 public static void playerRespawn(PlayerRespawnEvent e) {
+  long start = System.nanoTime();
+
+  correctRespawn(e);
+
+  Metrics.respawns.increment();
+  Metrics.respawnNanos.record(System.nanoTime() - start);
+}
+
+/**
+ Schedules the given player to be corrected to their bed. If they don't have one, then they are corrected to the named spawn nearest to where they died.<br>
+ If there are no named spawns in that world, they are corrected to the spawn of that world, or to the default spawn if the world doesn't override it.<br>
+ If "teleport.setSpawnLocation" is true, the player is respawned at the location directly & only checked to still be there.
+ If "teleport.safeCheck" is also true, they are only respawned there once a safe location is known.
+ * @param e The respawn event of the given player.
+ */
+private static void correctRespawn(PlayerRespawnEvent e) {
   Player player = e.getPlayer();
-  Location spawnLocation = e.getPlayer().getBedSpawnLocation();
+  Location spawnLocation = player.getBedSpawnLocation();
 
-  if (Config.onSpawn.getOccurrenceConfig() == Config.Occurrence.NEVER) {
+  if (WorldOverrides.getOnSpawn(player.getWorld()) == Config.Occurrence.NEVER) {
     return;
   }
 
-  //Sets the respawn location to the default spawn location if the player hasn't set a spawn yet.
+  //Sets the respawn location to the nearest named spawn, or to the spawn location of the world, if the player hasn't set a spawn yet.
+  //The player is still at where they died when this event is called.
   if (spawnLocation == null) {
-    spawnLocation = getDefaultSpawn();
+    spawnLocation = SpawnRegistry.nearest(player.getLocation());
+  }
+
+  if (spawnLocation == null) {
+    spawnLocation = WorldOverrides.getSpawn(player.getWorld());
+  }
+
+  if (Config.get().teleportSetSpawnLocation && spawnLocation != null) {
+    Location respawnAt = spawnLocation;
+
+    //If a safe location isn't known yet, then the player is corrected after respawning instead, once the search has finished.
+    if (Config.get().teleportSafeCheck) {
+      respawnAt = SafeLocations.findNow(spawnLocation);
+    }
+
+    if (respawnAt != null) {
+      e.setRespawnLocation(respawnAt.clone());
+      Metrics.spawnsSet.increment();
+      CorrectionEngine.verify(player, respawnAt, false);
+      return;
+    }
   }
 
-  BukkitTask bukkitTask = Bukkit.getScheduler().runTaskTimer(plugin, new Teleport(player, spawnLocation), 2, Config.teleport_retryInterval.getIntegerConfig());
-  Teleport.runningTasks.put(player.getUniqueId(), bukkitTask);
+  CorrectionEngine.schedule(player, spawnLocation, false);
 }
 }
@@ -2,8 +2,18 @@ package me.tye.spawnfix;
 
 import me.tye.spawnfix.commands.Commands;
 import me.tye.spawnfix.commands.TabComplete;
+import me.tye.spawnfix.utils.BulkOperations;
+import me.tye.spawnfix.utils.Checkpoints;
 import me.tye.spawnfix.utils.Config;
+import me.tye.spawnfix.utils.CorrectionEngine;
+import me.tye.spawnfix.utils.FileWatcher;
+import me.tye.spawnfix.utils.JoinIndex;
+import me.tye.spawnfix.utils.LastLocations;
 import me.tye.spawnfix.utils.Lang;
+import me.tye.spawnfix.utils.Metrics;
+import me.tye.spawnfix.utils.SpawnPool;
+import me.tye.spawnfix.utils.SpawnRegistry;
+import me.tye.spawnfix.utils.Util;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
@@ -17,6 +27,7 @@ public final class SpawnFix extends JavaPlugin {
 
 @Override
 public void onEnable() {
+    Util.init(this);
     createRequiredFiles();
 
     Config.init();
@@ -25,6 +36,10 @@ public void onEnable() {
     Config.load();
     Lang.load();
 
+    JoinIndex.load();
+    LastLocations.load();
+    SpawnRegistry.load();
+
     getLogger().log(Level.INFO, Lang.startUp_readMe.getResponse());
     getLogger().log(Level.INFO, Lang.startUp_link.getResponse());
 
@@ -32,15 +47,33 @@ public void onEnable() {
     getServer().getPluginManager().registerEvents(new PlayerJoin(), this);
     getServer().getPluginManager().registerEvents(new PlayerLeave(), this);
     getServer().getPluginManager().registerEvents(new PlayerRespawn(), this);
+    getServer().getPluginManager().registerEvents(new WorldLoad(), this);
+    getServer().getPluginManager().registerEvents(new PlayerChangeWorld(), this);
+    getServer().getPluginManager().registerEvents(new BlockChange(), this);
 
     //Commands
     Objects.requireNonNull(getCommand("sf")).setExecutor(new Commands());
     Objects.requireNonNull(getCommand("sf")).setTabCompleter(new TabComplete());
+
+    CorrectionEngine.start();
+    FileWatcher.update();
+    Metrics.start();
+    SpawnPool.start();
+    Checkpoints.start();
 }
 
 @Override
 public void onDisable() {
-
+    CorrectionEngine.stop();
+    FileWatcher.stop();
+    Metrics.stop();
+    SpawnPool.stop();
+    Checkpoints.stop();
+    JoinIndex.close();
+    BulkOperations.stop();
+    LastLocations.close();
+    SpawnRegistry.close();
+    ioExecutor.shutdown();
 }
 
 private void createRequiredFiles() {
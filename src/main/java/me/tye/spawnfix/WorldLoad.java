@@ -0,0 +1,47 @@
+package me.tye.spawnfix;
+
+import me.tye.spawnfix.utils.Config;
+import me.tye.spawnfix.utils.SpawnPool;
+import me.tye.spawnfix.utils.SpawnRegistry;
+import me.tye.spawnfix.utils.Util;
+import me.tye.spawnfix.utils.WorldOverrides;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+public class WorldLoad implements Listener {
+
+@EventHandler
+public static void worldLoad(WorldLoadEvent e) {
+  invalidateIfDefault(e.getWorld());
+  WorldOverrides.invalidate();
+  SpawnRegistry.rebuildIndexes();
+}
+
+@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+public static void worldUnload(WorldUnloadEvent e) {
+  invalidateIfDefault(e.getWorld());
+
+  //The world is still loaded whilst this event is called, so the spawns & overrides are resolved again on the next tick.
+  Bukkit.getScheduler().runTask(Util.plugin, () -> {
+    WorldOverrides.invalidate();
+    SpawnRegistry.rebuildIndexes();
+  });
+}
+
+/**
+ Makes the default spawn location be resolved again if the given world is the world of the default spawn location.
+ * @param world The given world.
+ */
+private static void invalidateIfDefault(World world) {
+  if (!world.getName().equals(Config.get().defaultWorldName)) return;
+
+  Util.invalidateDefaultSpawn();
+  SpawnPool.clear();
+}
+
+}
@@ -1,10 +1,21 @@
 package me.tye.spawnfix.commands;
 
+import me.tye.spawnfix.utils.BulkOperations;
 import me.tye.spawnfix.utils.Config;
+import me.tye.spawnfix.utils.ConfigSnapshot;
+import me.tye.spawnfix.utils.CorrectionEngine;
+import me.tye.spawnfix.utils.FileWatcher;
 import me.tye.spawnfix.utils.Key;
+import me.tye.spawnfix.utils.LastLocations;
 import me.tye.spawnfix.utils.Lang;
+import me.tye.spawnfix.utils.Metrics;
+import me.tye.spawnfix.utils.SpawnRegistry;
+import me.tye.spawnfix.utils.StoredLocation;
+import me.tye.spawnfix.utils.Template;
 import me.tye.spawnfix.utils.Util;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -12,6 +23,11 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.logging.Level;
 
 import static me.tye.spawnfix.utils.Util.*;
@@ -21,7 +37,7 @@ public class Commands implements CommandExecutor {
 public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
   if (!commandSender.hasPermission("sf")) return true;
 
-  if (args.length != 1) return true;
+  if (args.length == 0 || args.length > 3) return true;
 
   switch (args[0]) {
 
@@ -39,22 +55,32 @@ public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command
     float yaw = currentLocation.getYaw();
     float pitch = currentLocation.getPitch();
 
-    try {
-      writeYamlData("default.worldName", worldName, configFile);
-      writeYamlData("default.x", String.valueOf(x), configFile);
-      writeYamlData("default.y", String.valueOf(y), configFile);
-      writeYamlData("default.z", String.valueOf(z), configFile);
-      writeYamlData("default.yaw", String.valueOf(yaw), configFile);
-      writeYamlData("default.pitch", String.valueOf(pitch), configFile);
-    } catch (IOException e) {
-      player.sendMessage(Lang.commands_unableToSet.getResponse(Key.filePath.replaceWith(configFile.getAbsolutePath())));
-      log.log(Level.WARNING, "", e);
-      return true;
-    }
-
-    //reloads the config values
-    Config.load();
-    player.sendMessage(Lang.commands_setSpawn.getResponse());
+    LinkedHashMap<String,String> edits = new LinkedHashMap<>();
+    edits.put("default.worldName", worldName);
+    edits.put("default.x", String.valueOf(x));
+    edits.put("default.y", String.valueOf(y));
+    edits.put("default.z", String.valueOf(z));
+    edits.put("default.yaw", String.valueOf(yaw));
+    edits.put("default.pitch", String.valueOf(pitch));
+
+    //The file is written & the configs are reloaded in the background, then the new configs are used on the main thread.
+    ioExecutor.execute(() -> {
+      try {
+        writeYamlData(edits, configFile);
+      } catch (IOException e) {
+        log.log(Level.WARNING, "", e);
+        Bukkit.getScheduler().runTask(plugin, () -> player.sendMessage(Lang.commands_unableToSet.getResponse(player, Key.filePath.replaceWith(configFile.getAbsolutePath()))));
+        return;
+      }
+
+      ConfigSnapshot newConfig = Config.parse();
+
+      Bukkit.getScheduler().runTask(plugin, () -> {
+        Config.publish(newConfig);
+        FileWatcher.update();
+        player.sendMessage(Lang.commands_setSpawn.getResponse(player));
+      });
+    });
   }
 
   //Teleports the player to the set spawn.
@@ -62,28 +88,146 @@ public boolean onCommand(@NotNull CommandSender commandSender, @NotNull Command
     if (!(commandSender instanceof Player)) return true;
     Player player = (Player) commandSender;
 
-    player.teleport(Util.getDefaultSpawn());
+    Location defaultSpawn = Util.getDefaultSpawn();
+    if (defaultSpawn == null) {
+      player.sendMessage(Lang.teleport_noLocation.getResponse(player));
+      return true;
+    }
 
-    player.sendMessage(Lang.commands_teleported.getResponse());
+    CorrectionEngine.teleportOnce(player, defaultSpawn);
+
+    player.sendMessage(Lang.commands_teleported.getResponse(player));
   }
 
   //Reloads the config values for SpawnFix.
   case "reload" -> {
-    Config.load();
-    Lang.load();
+    //Any unsaved spawns are written first, so they aren't lost when the spawns file is read again.
+    SpawnRegistry.saveNow();
+
+    //The files are parsed in the background, then the new values are used on the main thread.
+    ioExecutor.execute(() -> {
+      ConfigSnapshot newConfig = Config.parse();
+      EnumMap<Lang, Template> newLangs = Lang.parse(newConfig.lang);
+      TreeMap<String, SpawnRegistry.NamedSpawn> newSpawns = SpawnRegistry.parse();
+
+      Bukkit.getScheduler().runTask(plugin, () -> {
+        Config.publish(newConfig);
+        Lang.publish(newLangs);
+        SpawnRegistry.publish(newSpawns);
+        FileWatcher.update();
+
+        commandSender.sendMessage(Lang.commands_reload.getResponse(commandSender));
+      });
+    });
+  }
 
-    commandSender.sendMessage(Lang.commands_reload.getResponse());
+  //Adds a named spawn at the players position.
+  case "addSpawn" -> {
+    if (!(commandSender instanceof Player)) return true;
+    if (args.length != 2) return true;
+
+    Player player = (Player) commandSender;
+    String name = args[1];
+
+    if (!SpawnRegistry.isValidName(name)) {
+      player.sendMessage(Lang.commands_invalidName.getResponse(player, Key.name.replaceWith(name)));
+      return true;
+    }
+
+    SpawnRegistry.add(name, player.getLocation());
+    player.sendMessage(Lang.commands_addSpawn.getResponse(player, Key.name.replaceWith(name)));
   }
 
+  //Removes a named spawn.
+  case "removeSpawn" -> {
+    if (args.length != 2) return true;
+
+    String name = args[1];
+
+    if (!SpawnRegistry.remove(name)) {
+      commandSender.sendMessage(Lang.commands_unknownSpawn.getResponse(commandSender, Key.name.replaceWith(name)));
+      return true;
+    }
+
+    commandSender.sendMessage(Lang.commands_removeSpawn.getResponse(commandSender, Key.name.replaceWith(name)));
+  }
+
+  //Shows the last logout location of a player.
+  case "lookup" -> {
+    if (args.length != 2) return true;
+    String name = args[1];
+
+    Player online = Bukkit.getPlayerExact(name);
+    if (online != null) {
+      sendLookup(commandSender, name, online.getUniqueId());
+      return true;
+    }
+
+    try {
+      sendLookup(commandSender, name, UUID.fromString(name));
+      return true;
+    } catch (IllegalArgumentException ignore) {}
+
+    //Getting an offline player by name can make a web request, so it's done in the background.
+    ioExecutor.execute(() -> {
+      UUID uuid = Bukkit.getOfflinePlayer(name).getUniqueId();
+      Bukkit.getScheduler().runTask(plugin, () -> sendLookup(commandSender, name, uuid));
+    });
+  }
+
+  //Changes the stored logout locations of every player.
+  case "bulk" -> {
+    if (args.length < 2) return true;
+
+    switch (args[1]) {
+    case "cancel" -> BulkOperations.cancel(commandSender);
+    case "reset" -> BulkOperations.start(commandSender, BulkOperations.Type.reset, args.length == 3 && args[2].equals("dry"));
+    case "relocate" -> BulkOperations.start(commandSender, BulkOperations.Type.relocate, args.length == 3 && args[2].equals("dry"));
+    default -> commandSender.sendMessage(Lang.commands_help_bulk.getResponse(commandSender));
+    }
+  }
+
+  //Shows the metrics for SpawnFix.
+  case "stats" -> Metrics.sendSummary(commandSender);
+
   default -> {
-    commandSender.sendMessage(Lang.commands_help_help.getResponse());
-    commandSender.sendMessage(Lang.commands_help_setSpawn.getResponse());
-    commandSender.sendMessage(Lang.commands_help_tp.getResponse());
-    commandSender.sendMessage(Lang.commands_help_reload.getResponse());
+    commandSender.sendMessage(Lang.commands_help_help.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_setSpawn.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_tp.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_addSpawn.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_removeSpawn.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_lookup.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_bulk.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_reload.getResponse(commandSender));
+    commandSender.sendMessage(Lang.commands_help_stats.getResponse(commandSender));
   }
 
   }
 
   return true;
 }
+
+/**
+ Sends the last logout location of the given player to the given sender.
+ * @param sender The given sender.
+ * @param name The name the player was looked up by.
+ * @param uuid The uuid of the given player.
+ */
+private static void sendLookup(@NotNull CommandSender sender, @NotNull String name, @NotNull UUID uuid) {
+  StoredLocation location = LastLocations.get(uuid);
+
+  if (location == null || location.isCleared()) {
+    sender.sendMessage(Lang.commands_lookup_none.getResponse(sender, Key.name.replaceWith(name)));
+    return;
+  }
+
+  World world = Bukkit.getWorld(location.world());
+  String worldName = world == null ? location.world().toString() : world.getName();
+
+  sender.sendMessage(Lang.commands_lookup_found.getResponse(sender,
+      Key.name.replaceWith(name),
+      Key.worldName.replaceWith(worldName),
+      Key.value.replaceWith(String.format(Locale.ROOT, "%.2f, %.2f, %.2f", location.x(), location.y(), location.z()))
+  ));
+}
 }
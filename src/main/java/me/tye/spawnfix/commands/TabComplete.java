@@ -1,5 +1,6 @@
 package me.tye.spawnfix.commands;
 
+import me.tye.spawnfix.utils.SpawnRegistry;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
@@ -20,13 +21,22 @@ public List<String> onTabComplete(@NotNull CommandSender commandSender, @NotNull
     return completions;
   }
 
-  String token = "";
-
   if (args.length == 1) {
-    token = args[0];
+    StringUtil.copyPartialMatches(args[0], List.of("setSpawn", "tp", "addSpawn", "removeSpawn", "lookup", "bulk", "reload", "stats", "help"), completions);
+  }
+
+  if (args.length == 2 && args[0].equals("bulk")) {
+    StringUtil.copyPartialMatches(args[1], List.of("reset", "relocate", "cancel"), completions);
   }
 
-  StringUtil.copyPartialMatches(token, List.of("setSpawn", "tp", "reload", "help"), completions);
+  if (args.length == 3 && args[0].equals("bulk") && !args[1].equals("cancel")) {
+    StringUtil.copyPartialMatches(args[2], List.of("dry"), completions);
+  }
+
+  //Suggests the existing spawns to remove.
+  if (args.length == 2 && args[0].equals("removeSpawn")) {
+    StringUtil.copyPartialMatches(args[1], SpawnRegistry.getNames(), completions);
+  }
 
   return completions;
 }
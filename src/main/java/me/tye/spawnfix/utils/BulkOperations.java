@@ -0,0 +1,273 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Changes the last logout locations of every player in the {@link LastLocations} store, such as after the map has changed.<br>
+ The store is gone through in batches in the background, one batch at a time, so other background work isn't held up & the main thread can still read the store between batches.
+ Only one operation can run at a time.<br>
+ The locations stored in each player's data can't be changed whilst they're offline, so the stored locations are cleared rather than removed.
+ A cleared location stops the one in the player's data from being used, so the player is sent to spawn on their next join, the same as a player without a last login location.
+ Once a reset finishes, the time it started at is recorded too, so the locations in the data of players that aren't in the store are ignored as well.
+ */
+public class BulkOperations {
+
+/**
+ The most stored locations to check in each batch.
+ */
+private static final int batchSize = 4096;
+
+/**
+ How many milliseconds to wait between each progress message.
+ */
+private static final long progressInterval = 2000;
+
+/**
+ The most seconds to wait for the running operation to stop when the plugin is disabled.
+ */
+private static final long stopTimeout = 10;
+
+/**
+ The kinds of operation that can be run.
+ */
+public enum Type {
+  /**
+   Clears every stored location.
+   */
+  reset,
+
+  /**
+   Clears the stored locations that are in worlds that aren't loaded.
+   */
+  relocate
+}
+
+/**
+ The running operation, or null if none are running.
+ */
+private static volatile @Nullable Operation running = null;
+
+/**
+ Starts the given operation in the background. This should only be called from the main thread.
+ * @param sender The sender to send the progress to.
+ * @param type The kind of operation to run.
+ * @param dryRun If true, the locations are only counted rather than changed.
+ */
+public static void start(@NotNull CommandSender sender, @NotNull Type type, boolean dryRun) {
+  Operation current = running;
+  if (current != null) {
+    sender.sendMessage(Lang.commands_bulk_running.getResponse(sender, Key.name.replaceWith(current.type.name())));
+    return;
+  }
+
+  LocationStore store = LastLocations.getStore();
+  if (store == null) {
+    sender.sendMessage(Lang.commands_bulk_noStore.getResponse(sender));
+    return;
+  }
+
+  //The loaded worlds are copied on the main thread, as they can't be read from the background.
+  HashSet<UUID> loadedWorlds = new HashSet<>();
+  for (World world : Bukkit.getWorlds()) {
+    loadedWorlds.add(world.getUID());
+  }
+
+  Operation operation = new Operation(sender, type, dryRun, store, loadedWorlds);
+  running = operation;
+
+  sender.sendMessage(Lang.commands_bulk_started.getResponse(sender, Key.name.replaceWith(type.name())));
+
+  ioExecutor.execute(() -> {
+    //Any locations waiting to be written are written first, so they don't overwrite the changed ones afterwards.
+    LastLocations.flush();
+    operation.runBatch();
+  });
+}
+
+/**
+ Cancels the running operation after its current batch.
+ * @param sender The sender that cancelled the operation.
+ */
+public static void cancel(@NotNull CommandSender sender) {
+  Operation current = running;
+  if (current == null) {
+    sender.sendMessage(Lang.commands_bulk_none.getResponse(sender));
+    return;
+  }
+
+  current.cancelled = true;
+}
+
+/**
+ Cancels the running operation without sending any messages, as the plugin is being disabled.<br>
+ This waits for the batch that is being run to finish, so the store isn't changed after it's closed.
+ */
+public static void stop() {
+  Operation current = running;
+  if (current == null) return;
+
+  current.cancelled = true;
+
+  try {
+    if (!current.finished.await(stopTimeout, TimeUnit.SECONDS)) {
+      log.warning(Lang.excepts_bulkTimeout.getResponse(Key.name.replaceWith(current.type.name())));
+    }
+  } catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+  }
+}
+
+/**
+ An operation going through the store.
+ */
+private static class Operation {
+  final CommandSender sender;
+  final Type type;
+  final boolean dryRun;
+  final LocationStore store;
+  final HashSet<UUID> loadedWorlds;
+
+  /**
+   The {@link System#currentTimeMillis()} when this operation was started.
+   */
+  final long startedAt = System.currentTimeMillis();
+
+  volatile boolean cancelled = false;
+
+  /**
+   Counted down once this operation has stopped & won't change the store again.
+   */
+  final CountDownLatch finished = new CountDownLatch(1);
+
+  long cursor = 0;
+  long checked = 0;
+  long changed = 0;
+  long lastProgress = System.currentTimeMillis();
+
+  Operation(@NotNull CommandSender sender, @NotNull Type type, boolean dryRun, @NotNull LocationStore store, @NotNull HashSet<UUID> loadedWorlds) {
+    this.sender = sender;
+    this.type = type;
+    this.dryRun = dryRun;
+    this.store = store;
+    this.loadedWorlds = loadedWorlds;
+  }
+
+  /**
+   Goes through the next batch of the store, then queues the next batch behind any other background work.
+   This should only be run on the io executor.
+   */
+  void runBatch() {
+    if (cancelled) {
+      finish(Lang.commands_bulk_cancelled);
+      return;
+    }
+
+    try {
+      cursor = store.scan(cursor, batchSize, this::visit);
+    } catch (IOException e) {
+      log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(LastLocations.getStoreFile().getAbsolutePath())), e);
+      finish(Lang.commands_bulk_cancelled);
+      return;
+    }
+
+    if (cursor == -1) {
+      try {
+        store.flush();
+      } catch (IOException e) {
+        log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(LastLocations.getStoreFile().getAbsolutePath())), e);
+      }
+
+      if (type == Type.reset && !dryRun) {
+        try {
+          LastLocations.markReset(startedAt);
+        } catch (IOException e) {
+          log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(LastLocations.getResetFile().getAbsolutePath())), e);
+        }
+      }
+
+      finish(dryRun ? Lang.commands_bulk_dryDone : Lang.commands_bulk_done);
+      return;
+    }
+
+    if (System.currentTimeMillis() - lastProgress >= progressInterval) {
+      lastProgress = System.currentTimeMillis();
+      String progress = checked+"/"+store.size();
+      send(Lang.commands_bulk_progress, progress);
+    }
+
+    try {
+      ioExecutor.execute(this::runBatch);
+    } catch (RejectedExecutionException e) {
+      //The plugin is being disabled.
+      running = null;
+      finished.countDown();
+    }
+  }
+
+  /**
+   * @param player The player the location is stored for.
+   * @param location The stored location.
+   * @return The location to replace the stored location with, or null if it shouldn't be changed.
+   */
+  @Nullable StoredLocation visit(@NotNull UUID player, @NotNull StoredLocation location) {
+    checked++;
+
+    if (location.isCleared()) return null;
+
+    boolean matches = switch (type) {
+      case reset -> true;
+      case relocate -> !loadedWorlds.contains(location.world());
+    };
+
+    if (!matches) return null;
+
+    changed++;
+    return dryRun ? null : StoredLocation.cleared();
+  }
+
+  /**
+   Stops this operation & sends the given message with the amount of changed locations.
+   * @param message The given message.
+   */
+  void finish(@NotNull Lang message) {
+    running = null;
+    finished.countDown();
+
+    //No tasks can be scheduled once the plugin has been disabled, & the locations in memory are discarded anyway.
+    if (!plugin.isEnabled()) return;
+
+    send(message, String.valueOf(changed));
+
+    if (dryRun || changed == 0) return;
+
+    //The locations in memory could be from before they were changed.
+    Bukkit.getScheduler().runTask(plugin, LastLocations::clearRecent);
+  }
+
+  /**
+   Sends the given message to the sender on the main thread.
+   * @param message The given message.
+   * @param value The value to put into the message.
+   */
+  void send(@NotNull Lang message, @NotNull String value) {
+    if (!plugin.isEnabled()) return;
+
+    Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(message.getResponse(sender, Key.name.replaceWith(type.name()), Key.value.replaceWith(value))));
+  }
+}
+
+}
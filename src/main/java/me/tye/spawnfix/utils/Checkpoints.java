@@ -0,0 +1,143 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static me.tye.spawnfix.utils.Util.plugin;
+
+/**
+ Records the location of online players every "checkpoint.interval" seconds, so their last login location is recent if the server crashes.<br>
+ Rather than recording every player at once, the players are split over every tick of the interval, so each tick only records a few of them.
+ Players that haven't moved more than "checkpoint.minDistance" blocks since their last checkpoint aren't recorded again.<br>
+ The locations are written to the {@link LastLocations} store in the background.
+ */
+public class Checkpoints {
+
+/**
+ The players to record on this cycle. This is copied from the online players at the start of each cycle.
+ */
+private static final ArrayList<UUID> players = new ArrayList<>();
+
+/**
+ The index in {@link #players} of the next player to record.
+ */
+private static int cursor = 0;
+
+/**
+ The amount of players to record each tick on this cycle.
+ */
+private static int perTick = 0;
+
+/**
+ The amount of ticks the task has run for.
+ */
+private static long currentTick = 0;
+
+/**
+ The tick that the next cycle can start on. A cycle only starts once the period of the last one has passed, even if every player was recorded sooner.
+ */
+private static long nextCycle = 0;
+
+/**
+ The last recorded location of each player that has been recorded.
+ */
+private static final HashMap<UUID, StoredLocation> recorded = new HashMap<>();
+
+private static @Nullable BukkitTask task = null;
+
+/**
+ Starts the repeating task that records the players.
+ */
+public static void start() {
+  if (task != null) return;
+
+  task = Bukkit.getScheduler().runTaskTimer(plugin, Checkpoints::tick, 1, 1);
+}
+
+/**
+ Stops recording the players.
+ */
+public static void stop() {
+  if (task != null) {
+    task.cancel();
+    task = null;
+  }
+
+  players.clear();
+  recorded.clear();
+  cursor = 0;
+  currentTick = 0;
+  nextCycle = 0;
+}
+
+/**
+ Records the next slice of players.
+ */
+private static void tick() {
+  currentTick++;
+
+  ConfigSnapshot config = Config.get();
+  if (config.checkpointInterval <= 0) return;
+
+  if (cursor >= players.size()) {
+    //Waits for the rest of the period once every player on this cycle has been recorded.
+    if (currentTick < nextCycle) return;
+
+    int period = config.checkpointInterval*20;
+    nextCycle = currentTick + period;
+    startCycle(period);
+    if (players.isEmpty()) return;
+  }
+
+  double minDistanceSquared = config.checkpointMinDistance*config.checkpointMinDistance;
+  int end = Math.min(players.size(), cursor+perTick);
+
+  for (; cursor < end; cursor++) {
+    UUID uuid = players.get(cursor);
+    Player player = Bukkit.getPlayer(uuid);
+    if (player == null) continue;
+
+    Location location = player.getLocation();
+    StoredLocation last = recorded.get(uuid);
+
+    if (last != null && last.world().equals(location.getWorld().getUID())) {
+      double dx = last.x()-location.getX();
+      double dy = last.y()-location.getY();
+      double dz = last.z()-location.getZ();
+
+      if (dx*dx + dy*dy + dz*dz < minDistanceSquared) continue;
+    }
+
+    recorded.put(uuid, LastLocations.checkpoint(uuid, location));
+  }
+}
+
+/**
+ Copies the online players for a new cycle, & forgets the players that have left.
+ * @param period The amount of ticks the cycle should be spread over.
+ */
+private static void startCycle(int period) {
+  players.clear();
+  cursor = 0;
+
+  HashSet<UUID> online = new HashSet<>();
+  for (Player player : Bukkit.getOnlinePlayers()) {
+    players.add(player.getUniqueId());
+    online.add(player.getUniqueId());
+  }
+
+  recorded.keySet().retainAll(online);
+
+  //Rounds up so every player is recorded within the period.
+  perTick = Math.max(1, (players.size() + period - 1) / period);
+}
+
+}
@@ -0,0 +1,154 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.log;
+
+public class ChunkLoader {
+
+/**
+ Paper's World#getChunkAtAsync(int, int) method, or null if the server doesn't have it.
+ */
+private static @Nullable MethodHandle getChunkAtAsync = findGetChunkAtAsync();
+
+/**
+ The chunks that have been requested to load asynchronously & haven't finished loading yet.
+ */
+private static final HashSet<ChunkKey> requested = new HashSet<>();
+
+/**
+ The amount of chunks that can still be loaded synchronously on this tick for corrections.
+ */
+private static final LoadBudget correctionBudget = new LoadBudget();
+
+/**
+ * @return True if the server can load chunks asynchronously.
+ */
+public static boolean hasAsyncChunks() {
+  return getChunkAtAsync != null;
+}
+
+/**
+ Replaces the method used to load chunks asynchronously, so the asynchronous path can be run without Paper. This should only be used by tests.<br>
+ Any chunks that were requested with the old method are forgotten.
+ * @param handle A method that takes the world, chunk x & chunk z, & returns a future that completes once the chunk has loaded. Or null to load chunks synchronously.
+ */
+static void useAsyncLoader(@Nullable MethodHandle handle) {
+  getChunkAtAsync = handle;
+  requested.clear();
+}
+
+/**
+ Resets the amount of chunks that can be loaded synchronously for corrections for a new tick. This should be called once at the start of every tick that corrections can load chunks on.
+ */
+public static void startTick() {
+  correctionBudget.reset(Config.get().teleportChunkLoadsPerTick);
+}
+
+/**
+ Checks if the chunk of the given location is loaded. If it isn't then it is requested to load.<br>
+ If the server can load chunks asynchronously then the chunk is loaded in the background.
+ Otherwise, the chunk is loaded synchronously if "teleport.chunkLoadsPerTick" hasn't been reached for this tick.
+ * @param location The given location. This location's world must be loaded.
+ * @return True if the chunk is ready for the location to be teleported to. False if the chunk is still loading.
+ */
+public static boolean isReady(@NotNull Location location) {
+  return isReady(location, correctionBudget);
+}
+
+/**
+ Checks if the chunk of the given location is loaded. If it isn't then it is requested to load.<br>
+ If the server can load chunks asynchronously then the chunk is loaded in the background.
+ Otherwise, the chunk is loaded synchronously if the given budget hasn't run out for this tick.
+ * @param location The given location. This location's world must be loaded.
+ * @param budget The amount of chunks that can be loaded synchronously this tick.
+ * @return True if the chunk is ready to be used. False if the chunk is still loading.
+ */
+public static boolean isReady(@NotNull Location location, @NotNull LoadBudget budget) {
+  World world = location.getWorld();
+  int chunkX = location.getBlockX() >> 4;
+  int chunkZ = location.getBlockZ() >> 4;
+
+  if (world.isChunkLoaded(chunkX, chunkZ)) return true;
+
+  if (getChunkAtAsync != null) {
+    requestAsync(world, chunkX, chunkZ);
+    return false;
+  }
+
+  if (budget.left <= 0) return false;
+
+  budget.left--;
+  world.getChunkAt(chunkX, chunkZ);
+  return true;
+}
+
+/**
+ Requests the given chunk to be loaded asynchronously. Chunks that are already being loaded aren't requested again.
+ * @param world The world the chunk is in.
+ * @param chunkX The x of the chunk.
+ * @param chunkZ The z of the chunk.
+ */
+private static void requestAsync(@NotNull World world, int chunkX, int chunkZ) {
+  ChunkKey key = new ChunkKey(world.getUID(), chunkX, chunkZ);
+  if (!requested.add(key)) return;
+
+  try {
+    CompletableFuture<?> future = (CompletableFuture<?>) getChunkAtAsync.invoke(world, chunkX, chunkZ);
+
+    //Paper completes the future on the main thread.
+    future.whenComplete((chunk, throwable) -> requested.remove(key));
+
+  } catch (Throwable e) {
+    requested.remove(key);
+    log.log(Level.WARNING, "Unable to load chunk asynchronously, loading it synchronously instead.", e);
+    world.getChunkAt(chunkX, chunkZ);
+  }
+}
+
+/**
+ * @return Paper's World#getChunkAtAsync(int, int) method, or null if the server doesn't have it.
+ */
+private static @Nullable MethodHandle findGetChunkAtAsync() {
+  try {
+    return MethodHandles.publicLookup().findVirtual(World.class, "getChunkAtAsync", MethodType.methodType(CompletableFuture.class, int.class, int.class));
+  } catch (NoSuchMethodException | IllegalAccessException e) {
+    return null;
+  }
+}
+
+/**
+ An amount of chunks that can be loaded synchronously each tick, so different tasks don't use up each other's chunk loads.
+ */
+public static class LoadBudget {
+  private int left = 0;
+
+  /**
+   Resets the amount of chunks that can be loaded for a new tick. This should be called once at the start of every tick that chunks can be loaded on.
+   * @param amount The amount of chunks that can be loaded this tick.
+   */
+  public void reset(int amount) {
+    left = amount;
+  }
+}
+
+/**
+ Identifies a chunk across all worlds.
+ * @param world The uuid of the world the chunk is in.
+ * @param x The x of the chunk.
+ * @param z The z of the chunk.
+ */
+private record ChunkKey(UUID world, int x, int z) {}
+
+}
@@ -2,10 +2,10 @@ package me.tye.spawnfix.utils;
 
 import org.checkerframework.checker.units.qual.K;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import static me.tye.spawnfix.utils.Util.log;
@@ -21,10 +21,34 @@ public enum Config {
 
   teleport_times(Integer.class),
   teleport_retryInterval(Integer.class),
+  teleport_verify(Boolean.class),
+  teleport_tolerance(Double.class),
+  teleport_rotationTolerance(Float.class),
+  teleport_stableChecks(Integer.class),
+  teleport_backoff(Double.class),
+  teleport_chunkLoadsPerTick(Integer.class),
+  teleport_maxPerTick(Integer.class),
+  teleport_maxMicrosPerTick(Integer.class),
+  teleport_cancelOnWorldChange(Boolean.class),
+  teleport_setSpawnLocation(Boolean.class),
+  teleport_safeCheck(Boolean.class),
+  teleport_safeRadius(Integer.class),
+
+  randomSpawn_enabled(Boolean.class),
+  randomSpawn_radius(Integer.class),
+  randomSpawn_poolSize(Integer.class),
+  randomSpawn_lowWater(Integer.class),
+  randomSpawn_checksPerTick(Integer.class),
+
+  checkpoint_interval(Integer.class),
+  checkpoint_minDistance(Double.class),
 
   login(Occurrence.class),
   onSpawn(Occurrence.class),
-  lang(String.class);
+  lang(String.class),
+  perPlayerLang(Boolean.class),
+  autoReload(Boolean.class),
+  metrics_dumpInterval(Integer.class);
 
 
 
@@ -49,16 +73,28 @@ private Class getType() {
 
 
 /**
- Stores the configs for this plugin.
+ The default configs, as loaded by {@link #init()}.
  */
-private static final HashMap<Config, Object> configs = new HashMap<>();
+private static final HashMap<Config, Object> defaultConfigs = new HashMap<>();
 
+/**
+ The currently used configs. This is replaced as a whole each time the configs are loaded, so it is never seen half-loaded.
+ */
+private static volatile ConfigSnapshot snapshot;
+
+
+/**
+ * @return The currently used configs, already parsed into their intended types.
+ */
+public static @NotNull ConfigSnapshot get() {
+  return snapshot;
+}
 
 /**
  * @return Gets the config response for the selected enum.
  */
 public @NotNull Object getConfig() {
-  Object response = configs.get(this);
+  Object response = snapshot.values.get(this);
 
   assert response != null;
 
@@ -93,6 +129,13 @@ public float getFloatConfig() {
   return Float.parseFloat(getStringConfig());
 }
 
+/**
+ * @return Gets the config response for the selected enum wrapped with Boolean.parseBoolean().
+ */
+public boolean getBooleanConfig() {
+  return Boolean.parseBoolean(getStringConfig());
+}
+
 /**
  Enum for how often spawnFix should act for a certain feature.
  */
@@ -127,7 +170,7 @@ public static void init() {
         throw new RuntimeException("\""+config+"\" cannot be parsed as given object. - Dev warning");
       }
 
-      configs.put(config, value);
+      defaultConfigs.put(config, value);
 
     } catch (IllegalArgumentException e) {
       //Dev warning
@@ -137,54 +180,126 @@ public static void init() {
 
   //Checks if any default values are missing.
   for (Config config : Config.values()) {
-    if (configs.containsKey(config)) continue;
+    if (defaultConfigs.containsKey(config)) continue;
 
     //Dev warning.
     throw new RuntimeException("\""+config+"\" isn't in default config file.  - Dev warning");
   }
+
+  snapshot = new ConfigSnapshot(defaultConfigs, Map.of());
 }
 
 /**
- Puts the keys response specified by the user into the configs map.
+ Loads the keys response specified by the user into a new snapshot, which then replaces the current one.<br>
+ Any keys that are missing or invalid use their default value.
  */
 public static void load() {
+  publish(parse());
+}
+
+/**
+ Replaces the current configs with the given snapshot.
+ * @param newSnapshot The given snapshot.
+ */
+public static void publish(@NotNull ConfigSnapshot newSnapshot) {
+  snapshot = newSnapshot;
+
+  //The cached safe locations could have been searched for with a different radius, & the pooled random locations could be around the old default spawn.
+  SafeLocations.clear();
+  SpawnPool.clear();
+}
+
+/**
+ Loads the keys response specified by the user into a new snapshot, without replacing the current one.<br>
+ Any keys that are missing or invalid use their default value.<br>
+ This reads from the config file, so it can be called off the main thread.
+ * @return The new snapshot.
+ */
+public static @NotNull ConfigSnapshot parse() {
+  ConfigSnapshot parsed = parse(false);
+
+  assert parsed != null;
+
+  return parsed;
+}
+
+/**
+ Loads the keys response specified by the user into a new snapshot, without replacing the current one.<br>
+ Unlike {@link #parse()}, the config file is never repaired, & no snapshot is made if the file isn't valid Yaml or if any of the keys are missing or have an invalid value.
+ This is for reloading the file as soon as it is changed, as it could have been read whilst it was only partly saved.<br>
+ This reads from the config file, so it can be called off the main thread.
+ * @return The new snapshot, or null if the file couldn't be read or any of the keys are missing or have an invalid value.
+ */
+public static @Nullable ConfigSnapshot parseValid() {
+  return parse(true);
+}
+
+/**
+ Loads the keys response specified by the user into a new snapshot, without replacing the current one.
+ * @param strict If true, then the file isn't repaired, & no snapshot is made if the file can't be read or any of the keys are missing or have an invalid value.
+ * If false, the missing keys are added to the file & the missing or invalid keys use their default value.
+ * @return The new snapshot, or null if strict is true & the file couldn't be used.
+ */
+private static @Nullable ConfigSnapshot parse(boolean strict) {
   //Loads in the user-set configs.
   File externalConfigFile = new File(Util.dataFolder.toPath()+File.separator+"config.yml");
-  HashMap<String,Object> externalConfigs = Util.parseAndRepairExternalYaml(externalConfigFile, "config.yml");
+  HashMap<String,Object> externalConfigs = strict ? Util.parseExternalYaml(externalConfigFile) : Util.parseAndRepairExternalYaml(externalConfigFile, "config.yml");
+  if (externalConfigs == null) return null;
 
   HashMap<Config, Object> userConfigs = new HashMap<>();
+  HashMap<String, Object> worldConfigs = new HashMap<>();
 
   //Gets the default keys that the user has entered.
   for (Map.Entry<String, Object> entry : externalConfigs.entrySet()) {
     String key = entry.getKey();
     Object value = entry.getValue();
 
-    String formattedKey = key.replace('.', '_');
-    Config config = Config.valueOf(formattedKey);
-
-    if (!validate(config, value)) {
-      log.warning(Lang.excepts_invalidValue.getResponse(Key.key.replaceWith(key), Key.filePath.replaceWith(externalConfigFile.getAbsolutePath())));
+    //The per-world overrides are parsed separately, as the world names aren't known in advance.
+    if (key.startsWith("worlds.")) {
+      worldConfigs.put(key, value);
       continue;
     }
 
+    String formattedKey = key.replace('.', '_');
+
     //logs an exception if the key doesn't exist.
+    Config config;
     try {
-      userConfigs.put(config, value);
+      config = Config.valueOf(formattedKey);
 
     } catch (IllegalArgumentException e) {
-      log.warning(Lang.excepts_invalidKey.getResponse(Key.key.replaceWith(key)));
+      log.warning(Lang.excepts_invalidKey.getResponse(Key.key.replaceWith(key), Key.filePath.replaceWith(externalConfigFile.getAbsolutePath())));
+      continue;
     }
+
+    if (!validate(config, value)) {
+      log.warning(Lang.excepts_invalidValue.getResponse(Key.key.replaceWith(key), Key.filePath.replaceWith(externalConfigFile.getAbsolutePath())));
+
+      if (strict) return null;
+      continue;
+    }
+
+    userConfigs.put(config, value);
   }
 
 
   //Warns the user about any config keys they are missing.
-  for (Config config : configs.keySet()) {
+  for (Config config : defaultConfigs.keySet()) {
     if (userConfigs.containsKey(config)) continue;
 
     log.warning(Lang.excepts_missingKey.getResponse(Key.key.replaceWith(config.toString()), Key.filePath.replaceWith(externalConfigFile.getAbsolutePath())));
+
+    //A missing key could mean the file was read before it was fully saved.
+    if (strict) return null;
   }
 
-  configs.putAll(userConfigs);
+  Map<String, WorldOverride> worlds = WorldOverride.parseAll(worldConfigs, externalConfigFile, strict);
+  if (worlds == null) return null;
+
+  HashMap<Config, Object> newConfigs = new HashMap<>(defaultConfigs);
+  newConfigs.putAll(userConfigs);
+
+  return new ConfigSnapshot(newConfigs, worlds);
 }
 
 /**
@@ -237,6 +352,10 @@ private static boolean validate(Config config, Object value) {
     }
   }
 
+  if (configType.equals(Boolean.class)) {
+    return stringValue.equalsIgnoreCase("true") || stringValue.equalsIgnoreCase("false");
+  }
+
   throw new RuntimeException("Validation for class \""+configType+"\" does not exist! - Dev warning.");
 }
 
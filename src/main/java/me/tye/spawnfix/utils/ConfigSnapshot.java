@@ -0,0 +1,127 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ An immutable copy of the configs, with every value already parsed into its intended type.<br>
+ A new snapshot is made each time the configs are loaded, so a snapshot never changes once it has been read.
+ */
+public final class ConfigSnapshot {
+
+/**
+ The unparsed config values this snapshot was made from.
+ */
+final Map<Config,Object> values;
+
+public final String defaultWorldName;
+public final double defaultX;
+public final double defaultY;
+public final double defaultZ;
+public final float defaultYaw;
+public final float defaultPitch;
+
+public final int teleportTimes;
+public final int teleportRetryInterval;
+public final boolean teleportVerify;
+public final double teleportTolerance;
+public final float teleportRotationTolerance;
+public final int teleportStableChecks;
+public final double teleportBackoff;
+public final int teleportChunkLoadsPerTick;
+public final int teleportMaxPerTick;
+public final int teleportMaxMicrosPerTick;
+public final boolean teleportCancelOnWorldChange;
+public final boolean teleportSetSpawnLocation;
+public final boolean teleportSafeCheck;
+public final int teleportSafeRadius;
+
+public final boolean randomSpawnEnabled;
+public final int randomSpawnRadius;
+public final int randomSpawnPoolSize;
+public final int randomSpawnLowWater;
+public final int randomSpawnChecksPerTick;
+
+public final int checkpointInterval;
+public final double checkpointMinDistance;
+
+public final Config.Occurrence login;
+public final Config.Occurrence onSpawn;
+public final String lang;
+public final boolean perPlayerLang;
+public final boolean autoReload;
+public final int metricsDumpInterval;
+
+/**
+ The overrides from the "worlds" section, by world name. Use {@link WorldOverrides} to look these up by world.
+ */
+public final Map<String, WorldOverride> worlds;
+
+/**
+ Parses the given config values into a new snapshot.
+ * @param values The config values. Every value should have already been validated.
+ * @param worlds The parsed per-world overrides, by world name.
+ */
+ConfigSnapshot(@NotNull Map<Config,Object> values, @NotNull Map<String, WorldOverride> worlds) {
+  this.values = Collections.unmodifiableMap(new EnumMap<>(values));
+
+  defaultWorldName = string(Config.default_worldName);
+  defaultX = Double.parseDouble(string(Config.default_x));
+  defaultY = Double.parseDouble(string(Config.default_y));
+  defaultZ = Double.parseDouble(string(Config.default_z));
+  defaultYaw = Float.parseFloat(string(Config.default_yaw));
+  defaultPitch = Float.parseFloat(string(Config.default_pitch));
+
+  teleportTimes = Integer.parseInt(string(Config.teleport_times));
+  teleportRetryInterval = Integer.parseInt(string(Config.teleport_retryInterval));
+  teleportVerify = Boolean.parseBoolean(string(Config.teleport_verify));
+  teleportTolerance = Double.parseDouble(string(Config.teleport_tolerance));
+  teleportRotationTolerance = Float.parseFloat(string(Config.teleport_rotationTolerance));
+  teleportStableChecks = Integer.parseInt(string(Config.teleport_stableChecks));
+  teleportBackoff = Double.parseDouble(string(Config.teleport_backoff));
+  teleportChunkLoadsPerTick = Integer.parseInt(string(Config.teleport_chunkLoadsPerTick));
+  teleportMaxPerTick = Integer.parseInt(string(Config.teleport_maxPerTick));
+  teleportMaxMicrosPerTick = Integer.parseInt(string(Config.teleport_maxMicrosPerTick));
+  teleportCancelOnWorldChange = Boolean.parseBoolean(string(Config.teleport_cancelOnWorldChange));
+  teleportSetSpawnLocation = Boolean.parseBoolean(string(Config.teleport_setSpawnLocation));
+  teleportSafeCheck = Boolean.parseBoolean(string(Config.teleport_safeCheck));
+  teleportSafeRadius = Integer.parseInt(string(Config.teleport_safeRadius));
+
+  randomSpawnEnabled = Boolean.parseBoolean(string(Config.randomSpawn_enabled));
+  randomSpawnRadius = Integer.parseInt(string(Config.randomSpawn_radius));
+  randomSpawnPoolSize = Integer.parseInt(string(Config.randomSpawn_poolSize));
+  randomSpawnLowWater = Integer.parseInt(string(Config.randomSpawn_lowWater));
+  randomSpawnChecksPerTick = Integer.parseInt(string(Config.randomSpawn_checksPerTick));
+
+  checkpointInterval = Integer.parseInt(string(Config.checkpoint_interval));
+  checkpointMinDistance = Double.parseDouble(string(Config.checkpoint_minDistance));
+
+  login = Config.Occurrence.valueOf(string(Config.login).toUpperCase());
+  onSpawn = Config.Occurrence.valueOf(string(Config.onSpawn).toUpperCase());
+  lang = string(Config.lang);
+  perPlayerLang = Boolean.parseBoolean(string(Config.perPlayerLang));
+  autoReload = Boolean.parseBoolean(string(Config.autoReload));
+  metricsDumpInterval = Integer.parseInt(string(Config.metrics_dumpInterval));
+
+  this.worlds = worlds;
+}
+
+/**
+ * @param config The config to get.
+ * @return The unparsed value of the given config wrapped with String.valueOf().
+ */
+private @NotNull String string(@NotNull Config config) {
+  Object value = values.get(config);
+
+  if (value == null) {
+    //Dev warning
+    throw new RuntimeException("\""+config+"\" has no value in the config snapshot. - Dev warning");
+  }
+
+  return String.valueOf(value);
+}
+
+}
@@ -0,0 +1,247 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+import static me.tye.spawnfix.utils.Util.plugin;
+
+public class CorrectionEngine {
+
+/**
+ The pending corrections, in the order they were scheduled. Only one correction can be pending for each player.
+ */
+private static final LinkedHashMap<UUID,Teleport> corrections = new LinkedHashMap<>();
+
+/**
+ The single repeating task that runs every pending correction.
+ */
+private static @Nullable BukkitTask task = null;
+
+/**
+ The amount of ticks the correction engine has been running for.
+ */
+private static long currentTick = 0;
+
+/**
+ Whether the corrections are currently being run. Corrections can't be removed from the map whilst this is true.
+ */
+private static boolean ticking = false;
+
+/**
+ The most teleports that can be made on this tick.
+ */
+private static int maxPerTick = 0;
+
+/**
+ The amount of teleports that can still be made on this tick.
+ */
+private static int teleportsLeft = 0;
+
+/**
+ The {@link System#nanoTime()} after which no more corrections can be run on this tick.
+ */
+private static long tickDeadline = 0;
+
+/**
+ Starts the repeating task that runs the pending corrections.
+ */
+public static void start() {
+  start(plugin);
+}
+
+/**
+ Starts the repeating task that runs the pending corrections, as the given plugin.<br>
+ This lets the engine be run on a server without this plugin loaded, such as a fake one in tests.
+ * @param owner The given plugin.
+ */
+static void start(@NotNull Plugin owner) {
+  if (task != null) return;
+
+  task = Bukkit.getScheduler().runTaskTimer(owner, CorrectionEngine::tick, 1, 1);
+}
+
+/**
+ Stops the repeating task & discards any pending corrections.
+ */
+public static void stop() {
+  if (task != null) {
+    task.cancel();
+    task = null;
+  }
+
+  corrections.clear();
+}
+
+/**
+ Schedules the given player to be repeatedly teleported to the given location, starting two ticks from now.<br>
+ This replaces any correction that is already pending for the player.
+ * @param player The given player.
+ * @param location The given location. If this is null then nothing is scheduled.
+ * @param priority Whether this correction should be run before the ones without priority when there are too many to run on one tick.
+ */
+public static void schedule(@NotNull Player player, @Nullable Location location, boolean priority) {
+  if (location == null) return;
+
+  corrections.put(player.getUniqueId(), new Teleport(player.getUniqueId(), location, currentTick+2, priority));
+  Metrics.correctionsScheduled.increment();
+}
+
+/**
+ Schedules the given player to be checked to be at the given location, starting two ticks from now.<br>
+ The player is only teleported if they aren't at the location, such as if another plugin moved them, regardless of "teleport.verify".
+ This is used when the player was spawned at the location directly, so normally they are never teleported.<br>
+ This replaces any correction that is already pending for the player.
+ * @param player The given player.
+ * @param location The given location. If this is null then nothing is scheduled.
+ * @param priority Whether this correction should be run before the ones without priority when there are too many to run on one tick.
+ */
+public static void verify(@NotNull Player player, @Nullable Location location, boolean priority) {
+  if (location == null) return;
+
+  corrections.put(player.getUniqueId(), new Teleport(player.getUniqueId(), location, currentTick+2, priority, Config.get().teleportTimes, true));
+  Metrics.correctionsScheduled.increment();
+}
+
+/**
+ Teleports the given player to the given location once, on the next tick.<br>
+ The teleport waits for the chunk of the location to load, so the main thread isn't blocked by loading it.<br>
+ This replaces any correction that is already pending for the player.
+ * @param player The given player.
+ * @param location The given location.
+ */
+public static void teleportOnce(@NotNull Player player, @Nullable Location location) {
+  if (location == null) {
+    plugin.getLogger().warning(Lang.teleport_noLocation.getResponse());
+    return;
+  }
+
+  corrections.put(player.getUniqueId(), new Teleport(player.getUniqueId(), location, currentTick+1, true, 1));
+}
+
+/**
+ Cancels the pending correction for the given player, if there is one.
+ * @param uuid The uuid of the given player.
+ */
+public static void cancel(@NotNull UUID uuid) {
+  Teleport teleport = corrections.get(uuid);
+  if (teleport == null) return;
+
+  //If this is called by an event from a teleport then the correction is removed once the tick finishes instead.
+  if (ticking) {
+    teleport.cancel();
+  } else {
+    corrections.remove(uuid);
+  }
+}
+
+/**
+ Cancels the pending correction for the given player if it has already started & isn't correcting them to the given world.
+ * @param uuid The uuid of the given player.
+ * @param world The world the player is now in.
+ */
+public static void cancelIfOtherWorld(@NotNull UUID uuid, @NotNull World world) {
+  Teleport teleport = corrections.get(uuid);
+  if (teleport == null) return;
+
+  //Corrections that haven't started yet are kept, as the player is still being moved to where they (re)spawn.
+  if (!teleport.hasStarted()) return;
+
+  if (teleport.getLocation().isWorldLoaded() && world.equals(teleport.getLocation().getWorld())) return;
+
+  cancel(uuid);
+}
+
+/**
+ * @return The amount of corrections that are currently pending.
+ */
+public static int liveCorrections() {
+  return corrections.size();
+}
+
+/**
+ Runs the corrections that are due on this tick, with the corrections that have priority being run first.<br>
+ At most "teleport.maxPerTick" teleports are made & at most "teleport.maxMicrosPerTick" microseconds are spent each tick.
+ Any due corrections that don't fit in this tick are run on the following ticks instead.
+ */
+private static void tick() {
+  currentTick++;
+
+  if (corrections.isEmpty()) return;
+
+  ChunkLoader.startTick();
+
+  ConfigSnapshot config = Config.get();
+  maxPerTick = config.teleportMaxPerTick;
+  teleportsLeft = maxPerTick;
+  long maxMicros = config.teleportMaxMicrosPerTick;
+  tickDeadline = maxMicros > 0 ? System.nanoTime() + maxMicros*1000 : Long.MAX_VALUE;
+
+  long start = System.nanoTime();
+  ticking = true;
+  try {
+    if (runDue(true)) {
+      runDue(false);
+    }
+  } finally {
+    ticking = false;
+    Metrics.correctionTickNanos.record(System.nanoTime() - start);
+  }
+}
+
+/**
+ Runs the due corrections that do or don't have priority, until the budget for this tick runs out.
+ * @param priority Whether to run the corrections that have priority or the ones that don't.
+ * @return False if the budget for this tick ran out.
+ */
+private static boolean runDue(boolean priority) {
+  Iterator<Teleport> iterator = corrections.values().iterator();
+  while (iterator.hasNext()) {
+    Teleport teleport = iterator.next();
+
+    if (teleport.isCancelled()) {
+      iterator.remove();
+      Metrics.teleportsPerCorrection.record(teleport.getTeleportCount());
+      continue;
+    }
+
+    if (teleport.hasPriority() != priority || !teleport.isDue(currentTick)) continue;
+
+    if (!hasBudget()) return false;
+
+    if (teleport.run(currentTick) || teleport.isCancelled()) {
+      iterator.remove();
+      Metrics.teleportsPerCorrection.record(teleport.getTeleportCount());
+    }
+
+    if (teleport.hasTeleported()) {
+      teleportsLeft--;
+      Metrics.teleports.increment();
+    }
+  }
+
+  return true;
+}
+
+/**
+ * @return True if more corrections can be run on this tick.
+ */
+private static boolean hasBudget() {
+  //0 or fewer means there is no limit.
+  if (maxPerTick > 0 && teleportsLeft <= 0) {
+    return false;
+  }
+
+  return System.nanoTime() < tickDeadline;
+}
+
+}
@@ -0,0 +1,204 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Reloads config.yml & the lang files automatically when they are changed, if "autoReload" is true.<br>
+ The files are watched on their own thread, which waits without using any resources until a file is changed.
+ */
+public class FileWatcher {
+
+/**
+ How long to wait after a file changes for any more changes, so an editor saving a file several times only reloads it once.
+ */
+private static final long debounceMillis = 500;
+
+private static @Nullable WatchService watchService = null;
+private static @Nullable Thread thread = null;
+
+/**
+ Starts or stops watching the files to match the "autoReload" config. This should only be called from the main thread.
+ */
+public static void update() {
+  boolean enabled = Config.get().autoReload;
+
+  if (enabled && thread == null) {
+    start();
+  }
+
+  if (!enabled && thread != null) {
+    stop();
+  }
+}
+
+/**
+ Stops watching the files.
+ */
+public static void stop() {
+  if (watchService != null) {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Unable to stop watching the config files.", e);
+    }
+  }
+
+  watchService = null;
+  thread = null;
+}
+
+/**
+ Starts watching the data folder & the lang folder for changes.
+ */
+private static void start() {
+  WatchService newWatchService;
+
+  try {
+    newWatchService = FileSystems.getDefault().newWatchService();
+    dataFolder.toPath().register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    langFolder.toPath().register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+  } catch (IOException e) {
+    log.log(Level.WARNING, "Unable to watch the config files for changes. They can still be reloaded with \"/sf reload\".", e);
+    return;
+  }
+
+  watchService = newWatchService;
+  thread = new Thread(() -> watch(newWatchService), "SpawnFix-FileWatcher");
+  thread.setDaemon(true);
+  thread.start();
+}
+
+/**
+ Waits for files to be changed, then reloads them once no more changes have been made for {@link #debounceMillis}.
+ * @param watchService The watch service to get the changes from.
+ */
+private static void watch(@NotNull WatchService watchService) {
+  try {
+    while (true) {
+      HashSet<Path> changed = new HashSet<>();
+
+      //Blocks until a file is changed.
+      collect(watchService.take(), changed);
+
+      //Waits until the files stop being changed.
+      WatchKey key;
+      while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+        collect(key, changed);
+      }
+
+      for (Path path : changed) {
+        reload(path);
+      }
+    }
+
+  } catch (ClosedWatchServiceException | InterruptedException ignore) {
+    //The watcher has been stopped.
+  }
+}
+
+/**
+ Adds the files changed in the given key to the given set.
+ * @param key The given key.
+ * @param changed The given set.
+ */
+private static void collect(@NotNull WatchKey key, @NotNull HashSet<Path> changed) {
+  Path directory = (Path) key.watchable();
+
+  for (WatchEvent<?> event : key.pollEvents()) {
+    if (!(event.context() instanceof Path fileName)) continue;
+
+    changed.add(directory.resolve(fileName));
+  }
+
+  key.reset();
+}
+
+/**
+ Reloads the given file, if it is config.yml or a lang file.
+ * @param path The path to the given file.
+ */
+private static void reload(@NotNull Path path) {
+  String fileName = path.getFileName().toString();
+
+  if (path.equals(configFile.toPath())) {
+    ioExecutor.execute(FileWatcher::reloadConfig);
+    return;
+  }
+
+  if (!path.getParent().equals(langFolder.toPath()) || !fileName.endsWith(".yml")) return;
+
+  String langName = fileName.substring(0, fileName.length()-".yml".length());
+  ioExecutor.execute(() -> reloadLang(langName));
+}
+
+/**
+ Reloads config.yml. If it can't be read or any of its values are missing or invalid, then the current configs are kept.<br>
+ If the lang was changed, the new lang is loaded as well. If the new lang can't be loaded, then the current configs are kept too.<br>
+ Neither file is repaired, as the user could still be saving it.
+ */
+private static void reloadConfig() {
+  ConfigSnapshot newConfig = Config.parseValid();
+  if (newConfig == null) {
+    log.warning(Lang.excepts_reloadRejected.getResponse(Key.filePath.replaceWith(configFile.getAbsolutePath())));
+    return;
+  }
+
+  EnumMap<Lang, Template> newLangs = null;
+  if (!newConfig.lang.equals(Config.get().lang)) {
+    newLangs = Lang.parseValid(newConfig.lang);
+
+    if (newLangs == null) {
+      log.warning(Lang.excepts_reloadRejected.getResponse(Key.filePath.replaceWith(configFile.getAbsolutePath())));
+      return;
+    }
+  }
+
+  EnumMap<Lang, Template> loadedLangs = newLangs;
+
+  Bukkit.getScheduler().runTask(plugin, () -> {
+    Config.publish(newConfig);
+    if (loadedLangs != null) Lang.publish(loadedLangs);
+
+    update();
+  });
+}
+
+/**
+ Reloads the given lang file. If it isn't the lang file that is being used, then any players using it get it reloaded instead.<br>
+ If the file can't be read or any of its keys are missing, then the current lang values are kept & the file isn't repaired.
+ * @param langName The name of the lang file, without the ".yml".
+ */
+private static void reloadLang(@NotNull String langName) {
+  if (!langName.equals(Config.get().lang)) {
+    LangBundles.evict(langName);
+    return;
+  }
+
+  EnumMap<Lang, Template> newLangs = Lang.parseValid(langName);
+  if (newLangs == null) {
+    log.warning(Lang.excepts_reloadRejected.getResponse(Key.filePath.replaceWith(langFolder.toPath().resolve(langName+".yml").toString())));
+    return;
+  }
+
+  Bukkit.getScheduler().runTask(plugin, () -> Lang.publish(newLangs));
+}
+
+}
@@ -0,0 +1,100 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ A histogram with fixed buckets, which can be recorded to from any thread without locking.
+ */
+public final class Histogram {
+
+/**
+ The inclusive upper bound of each bucket, in ascending order. Values above the last bound go in an extra overflow bucket.
+ */
+private final long[] bounds;
+private final LongAdder[] counts;
+private final LongAdder sum = new LongAdder();
+
+/**
+ * @param bounds The inclusive upper bound of each bucket, in ascending order.
+ */
+public Histogram(long... bounds) {
+  this.bounds = bounds;
+  this.counts = new LongAdder[bounds.length+1];
+
+  for (int i = 0; i < counts.length; i++) {
+    counts[i] = new LongAdder();
+  }
+}
+
+/**
+ Adds the given value to the bucket it falls in.
+ * @param value The given value.
+ */
+public void record(long value) {
+  int bucket = 0;
+  while (bucket < bounds.length && value > bounds[bucket]) {
+    bucket++;
+  }
+
+  counts[bucket].increment();
+  sum.add(value);
+}
+
+/**
+ * @return The amount of values that have been recorded.
+ */
+public long count() {
+  long count = 0;
+  for (LongAdder bucket : counts) {
+    count += bucket.sum();
+  }
+
+  return count;
+}
+
+/**
+ * @return The sum of every value that has been recorded.
+ */
+public long sum() {
+  return sum.sum();
+}
+
+/**
+ * @param quantile The quantile to get, between 0 & 1.
+ * @return The upper bound of the bucket the given quantile falls in, or -1 if it's in the overflow bucket.
+ */
+public long quantileBound(double quantile) {
+  long target = (long) Math.ceil(count() * quantile);
+  long seen = 0;
+
+  for (int i = 0; i < bounds.length; i++) {
+    seen += counts[i].sum();
+    if (seen >= target) return bounds[i];
+  }
+
+  return -1;
+}
+
+/**
+ Appends this histogram in the Prometheus text format to the given builder.
+ * @param name The name of the metric.
+ * @param builder The given builder.
+ */
+public void appendPrometheus(@NotNull String name, @NotNull StringBuilder builder) {
+  builder.append("# TYPE ").append(name).append(" histogram\n");
+
+  long cumulative = 0;
+  for (int i = 0; i < bounds.length; i++) {
+    cumulative += counts[i].sum();
+    builder.append(name).append("_bucket{le=\"").append(bounds[i]).append("\"} ").append(cumulative).append('\n');
+  }
+
+  cumulative += counts[bounds.length].sum();
+  builder.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+  builder.append(name).append("_sum ").append(sum()).append('\n');
+  builder.append(name).append("_count ").append(cumulative).append('\n');
+}
+
+}
@@ -0,0 +1,179 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Keeps track of every player that has ever joined, so "login: first" still works after a restart.<br>
+ The index file stores each uuid as two longs, sorted so new players can be merged into it in one pass.
+ The uuids are also kept in a {@link UuidSet}, so each join is checked with a single hash lookup. This should only be used from the main thread.
+ */
+public class JoinIndex {
+
+/**
+ The file the index is stored in.
+ */
+private static final File indexFile = new File(dataFolder.toPath() + File.separator + "joined.dat");
+
+/**
+ How many ticks to wait between each write of the new players to the index file.
+ */
+private static final long flushInterval = 20*30;
+
+/**
+ The uuids in the index file, sorted & stored as most significant bits followed by least significant bits. This is only used to write the index file.
+ */
+private static long[] stored = new long[0];
+
+/**
+ Every player that has joined, including the ones that haven't been written to the index file yet.
+ */
+private static UuidSet joined = new UuidSet(0);
+
+/**
+ The players that have joined since the index file was last written.
+ */
+private static final Set<UUID> recent = ConcurrentHashMap.newKeySet();
+
+/**
+ The repeating task that writes the new players to the index file.
+ */
+private static @Nullable BukkitTask flushTask = null;
+
+/**
+ Reads the index file & starts writing new players to it in the background.
+ */
+public static void load() {
+  if (indexFile.exists()) {
+    try {
+      byte[] bytes = Files.readAllBytes(indexFile.toPath());
+      long[] longs = new long[(bytes.length / (Long.BYTES*2)) * 2];
+
+      ByteBuffer.wrap(bytes).asLongBuffer().get(longs);
+
+      UuidSet loaded = new UuidSet(longs.length/2);
+      for (int i = 0; i < longs.length; i += 2) {
+        loaded.add(longs[i], longs[i+1]);
+      }
+
+      stored = longs;
+      joined = loaded;
+
+    } catch (IOException e) {
+      log.log(Level.WARNING, Lang.excepts_parseIndex.getResponse(Key.filePath.replaceWith(indexFile.getAbsolutePath())), e);
+    }
+  }
+
+  if (flushTask == null) {
+    flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, JoinIndex::flush, flushInterval, flushInterval);
+  }
+}
+
+/**
+ Stops writing new players in the background & writes any remaining new players to the index file.
+ */
+public static void close() {
+  if (flushTask != null) {
+    flushTask.cancel();
+    flushTask = null;
+  }
+
+  flush();
+}
+
+/**
+ * @param uuid The uuid of the given player.
+ * @return True if the given player has joined before.
+ */
+public static boolean contains(@NotNull UUID uuid) {
+  return joined.contains(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+}
+
+/**
+ Adds the given player to the index. The player is written to the index file on the next flush.
+ * @param uuid The uuid of the given player.
+ */
+public static void add(@NotNull UUID uuid) {
+  if (!joined.add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits())) return;
+
+  recent.add(uuid);
+}
+
+/**
+ Merges the players that have joined since the last flush into the index file.<br>
+ The file is written to a temporary file first, so a crash can't leave a half written index.
+ */
+private static synchronized void flush() {
+  if (recent.isEmpty()) return;
+
+  ArrayList<UUID> flushing = new ArrayList<>(recent);
+  long[] current = stored;
+
+  //Sorts the new uuids the same way as the stored ones.
+  flushing.sort((first, second) -> compare(first.getMostSignificantBits(), first.getLeastSignificantBits(), second.getMostSignificantBits(), second.getLeastSignificantBits()));
+
+  long[] merged = new long[current.length + flushing.size()*2];
+  int currentIndex = 0, mergedIndex = 0;
+
+  for (UUID uuid : flushing) {
+    long most = uuid.getMostSignificantBits();
+    long least = uuid.getLeastSignificantBits();
+
+    while (currentIndex < current.length && compare(current[currentIndex], current[currentIndex+1], most, least) < 0) {
+      merged[mergedIndex++] = current[currentIndex++];
+      merged[mergedIndex++] = current[currentIndex++];
+    }
+
+    //Skips uuids that are already stored.
+    if (currentIndex < current.length && compare(current[currentIndex], current[currentIndex+1], most, least) == 0) continue;
+
+    merged[mergedIndex++] = most;
+    merged[mergedIndex++] = least;
+  }
+
+  while (currentIndex < current.length) {
+    merged[mergedIndex++] = current[currentIndex++];
+  }
+
+  ByteBuffer buffer = ByteBuffer.allocate(mergedIndex * Long.BYTES);
+  buffer.asLongBuffer().put(merged, 0, mergedIndex);
+
+  try {
+    writeAtomically(indexFile, buffer.array());
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(indexFile.getAbsolutePath())), e);
+    return;
+  }
+
+  long[] newStored = new long[mergedIndex];
+  System.arraycopy(merged, 0, newStored, 0, mergedIndex);
+
+  //The new uuids are only removed once they have been written.
+  stored = newStored;
+  flushing.forEach(recent::remove);
+}
+
+/**
+ Compares two uuids by their most significant bits, then by their least significant bits.
+ * @return A negative number, zero, or a positive number if the first uuid is less than, equal to, or greater than the second uuid.
+ */
+private static int compare(long firstMost, long firstLeast, long secondMost, long secondLeast) {
+  int comparison = Long.compare(firstMost, secondMost);
+  return comparison != 0 ? comparison : Long.compare(firstLeast, secondLeast);
+}
+
+}
@@ -1,27 +1,30 @@
 package me.tye.spawnfix.utils;
 
+import org.jetbrains.annotations.NotNull;
+
 public enum Key {
 
   key(),
-  filePath();
-
-
-private String replaceWith = "";
+  filePath(),
+  worldName(),
+  name(),
+  value(),
+  mean(),
+  p99();
 
 
 /**
- * @param string The string to replace with value with.
- * @return The modified key object.
+ * @param string The string to replace the key with.
+ * @return The key paired with the given string. Nothing is stored on the key itself, so responses can be made from any thread.
  */
-public Key replaceWith(String string) {
-  this.replaceWith = string;
-  return this;
+public @NotNull Arg replaceWith(@NotNull String string) {
+  return new Arg(this, string);
 }
 
 /**
- * @return The string to replace with.
+ A key & the string to replace it with in a response.
+ * @param key The key to replace.
+ * @param value The string to replace it with.
  */
-public String getReplaceWith() {
-  return replaceWith;
-}
+public record Arg(@NotNull Key key, @NotNull String value) {}
 }
@@ -1,9 +1,13 @@
 package me.tye.spawnfix.utils;
 
 import org.checkerframework.checker.units.qual.K;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.EnumMap;
 import java.util.HashMap;
 
 import static me.tye.spawnfix.utils.Util.*;
@@ -15,15 +19,50 @@ public enum Lang {
 
   teleport_noLocation,
   teleport_noPlayer,
+  teleport_timedOut,
 
   commands_setSpawn,
   commands_unableToSet,
   commands_teleported,
+  commands_addSpawn,
+  commands_removeSpawn,
+  commands_invalidName,
+  commands_unknownSpawn,
+  commands_lookup_found,
+  commands_lookup_none,
+  commands_bulk_started,
+  commands_bulk_progress,
+  commands_bulk_done,
+  commands_bulk_dryDone,
+  commands_bulk_cancelled,
+  commands_bulk_running,
+  commands_bulk_none,
+  commands_bulk_noStore,
   commands_reload,
+  commands_stats_header,
+  commands_stats_line,
+  commands_stats_joins,
+  commands_stats_respawns,
+  commands_stats_correctionsScheduled,
+  commands_stats_liveCorrections,
+  commands_stats_teleports,
+  commands_stats_spawnsSet,
+  commands_stats_teleportsPerCorrection,
+  commands_stats_joinHandler,
+  commands_stats_respawnHandler,
+  commands_stats_correctionTick,
+  commands_stats_summary,
+  commands_stats_atMost,
+  commands_stats_higher,
   commands_help_help,
   commands_help_reload,
   commands_help_setSpawn,
   commands_help_tp,
+  commands_help_addSpawn,
+  commands_help_removeSpawn,
+  commands_help_lookup,
+  commands_help_bulk,
+  commands_help_stats,
 
   excepts_invalidKey,
   excepts_invalidValue,
@@ -31,12 +70,24 @@ public enum Lang {
   excepts_fileCreation,
   excepts_fileRestore,
   excepts_parseYaml,
-  excepts_noFile;
+  excepts_noFile,
+  excepts_noWorld,
+  excepts_parseIndex,
+  excepts_parseStore,
+  excepts_fileWrite,
+  excepts_reloadRejected,
+  excepts_parseReset,
+  excepts_bulkTimeout;
 
 /**
- Stores the lang values.
+ Stores the default lang values, compiled into templates.
  */
-private static final HashMap<Lang, String> langs = new HashMap<>();
+private static final EnumMap<Lang, Template> defaultLangs = new EnumMap<>(Lang.class);
+
+/**
+ Stores the lang values, compiled into templates. This is replaced as a whole each time the lang is loaded, so it is never seen half-loaded.
+ */
+private static volatile EnumMap<Lang, Template> langs = defaultLangs;
 
 
 /**
@@ -44,32 +95,46 @@ private static final HashMap<Lang, String> langs = new HashMap<>();
  * @param keys The keys to modify the response with.
  * @return The modified string.
  */
-public @NotNull String getResponse(@NotNull Key... keys) {
-  String response = this.getResponse();
-
-  for (Key key : keys) {
-    String replaceString = key.getReplaceWith();
+public @NotNull String getResponse(@NotNull Key.Arg... keys) {
+  return getTemplate().render(keys);
+}
 
-    //For windows file paths the "\" wouldn't get logged so it's escaped.
-    if (key.equals(Key.filePath)) {
-      replaceString = replaceString.replaceAll("\\\\", "\\\\\\\\");
-    }
+/**
+ Gets the string response for the selected enum in the language of the given sender.<br>
+ If "perPlayerLang" is false, the sender isn't a player, or the player's language hasn't loaded yet, then the default language is used.
+ * @param sender The sender that the response will be sent to.
+ * @param keys The keys to modify the response with.
+ * @return The modified string.
+ */
+public @NotNull String getResponse(@NotNull CommandSender sender, @NotNull Key.Arg... keys) {
+  if (!(sender instanceof Player player) || !Config.get().perPlayerLang) {
+    return getResponse(keys);
+  }
 
-    response = response.replaceAll("\\{"+key+"}", replaceString);
+  Template template = LangBundles.get(player.getLocale(), this);
+  if (template == null) {
+    return getResponse(keys);
   }
 
-  return response;
+  return template.render(keys);
 }
 
 /**
  * @return The string response without any keys being modified. This is the same as getResponse();
  */
 public @NotNull String getResponse() {
-  String response = langs.get(this);
+  return getTemplate().toString();
+}
 
-  assert response != null;
+/**
+ * @return The compiled template for the selected enum.
+ */
+private @NotNull Template getTemplate() {
+  Template template = langs.get(this);
 
-  return response;
+  assert template != null;
+
+  return template;
 }
 
 /**
@@ -77,7 +142,7 @@ public @NotNull String getResponse() {
  */
 public static void init() {
   //Falls back to english if default values can't be found.
-  String resourcePath = "lang/"+Config.lang.getStringConfig()+".yml";
+  String resourcePath = "lang/"+Config.get().lang+".yml";
   if (plugin.getResource(resourcePath) == null) {
     resourcePath = "lang/eng.yml";
   }
@@ -88,7 +153,7 @@ public static void init() {
     String formattedKey = key.replace('.', '_');
 
     try {
-      langs.put(Lang.valueOf(formattedKey), value.toString());
+      defaultLangs.put(Lang.valueOf(formattedKey), Template.compile(value.toString()));
 
     } catch (IllegalArgumentException e) {
       //Dev warning
@@ -98,7 +163,7 @@ public static void init() {
 
   //Checks if any default values are missing.
   for (Lang lang : Lang.values()) {
-    if (langs.containsKey(lang)) continue;
+    if (defaultLangs.containsKey(lang)) continue;
 
     //Dev warning.
     throw new RuntimeException(lang+" isn't in default lang file.");
@@ -110,39 +175,105 @@ public static void init() {
  To see available languages for a version see the src/main/resources/lang/ for your version on GitHub.
  */
 public static void load() {
+  publish(parse(Config.get().lang));
+}
+
+/**
+ Replaces the current lang values with the given ones.
+ * @param newLangs The given lang values, as returned by {@link #parse(String)}.
+ */
+public static void publish(@NotNull EnumMap<Lang, Template> newLangs) {
+  langs = newLangs;
+  LangBundles.clear();
+}
+
+/**
+ Loads the lang values from the given lang file, without replacing the current ones.<br>
+ Any keys that are missing use their default value.<br>
+ This reads from the lang file, so it can be called off the main thread.
+ * @param langName The name of the lang file, without the ".yml".
+ * @return The loaded lang values.
+ */
+public static @NotNull EnumMap<Lang, Template> parse(@NotNull String langName) {
+  EnumMap<Lang, Template> parsed = parse(langName, false);
+
+  assert parsed != null;
+
+  return parsed;
+}
+
+/**
+ Loads the lang values from the given lang file, without replacing the current ones.<br>
+ Unlike {@link #parse(String)}, the lang file is never repaired, & nothing is loaded if the file isn't valid Yaml or if any of the keys are missing.
+ This is for reloading the file as soon as it is changed, as it could have been read whilst it was only partly saved.<br>
+ This reads from the lang file, so it can be called off the main thread.
+ * @param langName The name of the lang file, without the ".yml".
+ * @return The loaded lang values, or null if the file couldn't be read or any of the keys are missing.
+ */
+public static @Nullable EnumMap<Lang, Template> parseValid(@NotNull String langName) {
+  return parse(langName, true);
+}
+
+/**
+ Loads the lang values from the given lang file, without replacing the current ones.
+ * @param langName The name of the lang file, without the ".yml".
+ * @param strict If true, then the file isn't repaired, & nothing is loaded if the file can't be read or any of the keys are missing.
+ * If false, the missing keys are added to the file if there is an internal lang to take them from, & the missing keys use their default value.
+ * @return The loaded lang values, or null if strict is true & the file couldn't be used.
+ */
+private static @Nullable EnumMap<Lang, Template> parse(@NotNull String langName, boolean strict) {
   //No repair is attempted if the internal file can't be found.
-  String resourcePath = "lang/"+Config.lang.getStringConfig()+".yml";
+  String resourcePath = "lang/"+langName+".yml";
   if (plugin.getResource(resourcePath) == null) {
     resourcePath = null;
   }
 
   //Loads the external lang responses. No file repairing is done if an internal lang can't be found.
-  File externalFile = new File(langFolder.toPath()+File.separator+Config.lang.getStringConfig()+".yml");
-  HashMap<String,Object> externalYaml = Util.parseAndRepairExternalYaml(externalFile, resourcePath);
+  File externalFile = new File(langFolder.toPath()+File.separator+langName+".yml");
+  HashMap<String,Object> externalYaml = strict ? Util.parseExternalYaml(externalFile) : Util.parseAndRepairExternalYaml(externalFile, resourcePath);
+  if (externalYaml == null) return null;
+
+  EnumMap<Lang, Template> userLangs = compile(externalYaml, externalFile);
 
-  HashMap<Lang, String> userLangs = new HashMap<>();
+  //Warns the user about any lang keys they are missing.
+  for (Lang lang : defaultLangs.keySet()) {
+    if (userLangs.containsKey(lang)) continue;
+
+    String formattedKey = lang.toString().replace('.', '_');
+    log.warning(Lang.excepts_missingKey.getResponse(Key.key.replaceWith(formattedKey), Key.filePath.replaceWith(externalFile.getAbsolutePath())));
+
+    //A missing key could mean the file was read before it was fully saved.
+    if (strict) return null;
+  }
+
+  EnumMap<Lang, Template> newLangs = new EnumMap<>(defaultLangs);
+  newLangs.putAll(userLangs);
+
+  return newLangs;
+}
+
+/**
+ Compiles the given lang values parsed from the given file into templates.
+ * @param yaml The lang values parsed from the given file.
+ * @param file The file the lang values were parsed from. This is only used for logging.
+ * @return The compiled lang values. Any keys that aren't valid are logged & left out.
+ */
+static @NotNull EnumMap<Lang, Template> compile(@NotNull HashMap<String,Object> yaml, @NotNull File file) {
+  EnumMap<Lang, Template> compiled = new EnumMap<>(Lang.class);
 
   //Gets the default keys that the user has entered.
-  externalYaml.forEach((String key, Object value) -> {
+  yaml.forEach((String key, Object value) -> {
     String formattedKey = key.replace('.', '_');
 
     //Logs an exception if the key doesn't exist.
     try {
-      userLangs.put(Lang.valueOf(formattedKey), value.toString());
+      compiled.put(Lang.valueOf(formattedKey), Template.compile(value.toString()));
     } catch (IllegalArgumentException e) {
-      Util.log.warning(Lang.excepts_invalidKey.getResponse(Key.key.replaceWith(key), Key.filePath.replaceWith(externalFile.getAbsolutePath())));
+      Util.log.warning(Lang.excepts_invalidKey.getResponse(Key.key.replaceWith(key), Key.filePath.replaceWith(file.getAbsolutePath())));
     }
   });
 
-  //Warns the user about any lang keys they are missing.
-  for (Lang lang : langs.keySet()) {
-    if (userLangs.containsKey(lang)) continue;
-
-    String formattedKey = lang.toString().replace('.', '_');
-    log.warning(Lang.excepts_missingKey.getResponse(Key.key.replaceWith(formattedKey), Key.filePath.replaceWith(externalFile.getAbsolutePath())));
-  }
-
-  langs.putAll(userLangs);
+  return compiled;
 }
 
 }
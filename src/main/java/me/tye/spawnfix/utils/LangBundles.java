@@ -0,0 +1,133 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Caches the lang values for each player language, so players can get responses in their own language.<br>
+ Each language is loaded in the background the first time it is needed.
+ */
+public class LangBundles {
+
+/**
+ The most languages that can be cached at once. The least recently used language is removed when this is exceeded.
+ */
+private static final int maxBundles = 8;
+
+/**
+ The cached languages by player locale. A language with no lang file is cached as an empty map.
+ */
+private static final LinkedHashMap<String, EnumMap<Lang, Template>> bundles = new LinkedHashMap<>(16, 0.75f, true) {
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<String, EnumMap<Lang, Template>> eldest) {
+    return size() > maxBundles;
+  }
+};
+
+/**
+ The locales that are currently being loaded in the background.
+ */
+private static final HashSet<String> loading = new HashSet<>();
+
+/**
+ Increased each time cached languages are removed, so languages that were being loaded from before then aren't cached.
+ */
+private static int generation = 0;
+
+/**
+ Gets the response in the given locale. If the locale isn't loaded yet then it starts loading in the background.<br>
+ This should only be called from the main thread.
+ * @param locale The given locale, such as "en_us".
+ * @param lang The response to get.
+ * @return The response in the given locale.<br>
+ * Or null if the locale is still loading, has no lang file, or doesn't contain the response.
+ */
+public static @Nullable Template get(@NotNull String locale, @NotNull Lang lang) {
+  if (!Bukkit.isPrimaryThread()) return null;
+
+  locale = locale.toLowerCase(Locale.ROOT);
+
+  EnumMap<Lang, Template> bundle = bundles.get(locale);
+  if (bundle != null) return bundle.get(lang);
+
+  if (loading.add(locale)) {
+    String loadingLocale = locale;
+    int startGeneration = generation;
+    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+      EnumMap<Lang, Template> loaded = load(loadingLocale);
+
+      //Published on the main thread so the cache is only ever accessed from there.
+      Bukkit.getScheduler().runTask(plugin, () -> {
+        loading.remove(loadingLocale);
+
+        //The lang file could have changed since it was read.
+        if (startGeneration != generation) return;
+        bundles.put(loadingLocale, loaded);
+      });
+    });
+  }
+
+  return null;
+}
+
+/**
+ Removes every cached language, so they are loaded again from their files when next needed.
+ */
+public static void clear() {
+  if (!Bukkit.isPrimaryThread()) {
+    Bukkit.getScheduler().runTask(plugin, LangBundles::clear);
+    return;
+  }
+
+  bundles.clear();
+  generation++;
+}
+
+/**
+ Removes the cached languages that are loaded from the given lang file, so they are loaded again when next needed.
+ * @param langName The name of the lang file, without the ".yml".
+ */
+public static void evict(@NotNull String langName) {
+  if (!Bukkit.isPrimaryThread()) {
+    Bukkit.getScheduler().runTask(plugin, () -> evict(langName));
+    return;
+  }
+
+  String name = langName.toLowerCase(Locale.ROOT);
+  bundles.keySet().removeIf(locale -> locale.equals(name) || locale.startsWith(name+"_"));
+  generation++;
+}
+
+/**
+ Loads the lang file for the given locale. The file "{locale}.yml" is used, or "{language}.yml" if it doesn't exist.<br>
+ For example, "de_de.yml" or "de.yml" for the locale "de_de".
+ * @param locale The given locale.
+ * @return The compiled lang values for the given locale, or an empty map if it has no lang file.
+ */
+private static @NotNull EnumMap<Lang, Template> load(@NotNull String locale) {
+  File localeFile = new File(langFolder.toPath()+File.separator+locale+".yml");
+
+  if (!localeFile.exists()) {
+    int separator = locale.indexOf('_');
+    if (separator == -1) return new EnumMap<>(Lang.class);
+
+    localeFile = new File(langFolder.toPath()+File.separator+locale.substring(0, separator)+".yml");
+    if (!localeFile.exists()) return new EnumMap<>(Lang.class);
+  }
+
+  HashMap<String, Object> yaml = parseAndRepairExternalYaml(localeFile, null);
+  return Lang.compile(yaml, localeFile);
+}
+
+}
@@ -0,0 +1,242 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Keeps the last logout location of every player in a {@link LocationStore}, so they can be read whilst the player is offline.<br>
+ Locations are written to the store in batches in the background. The most recent locations are also kept in memory, so players that rejoin soon after leaving don't read from the store.
+ */
+public class LastLocations {
+
+/**
+ The file the locations are stored in.
+ */
+private static final File storeFile = new File(dataFolder.toPath() + File.separator + "locations.dat");
+
+/**
+ The file the time of the last bulk reset is stored in.
+ */
+private static final File resetFile = new File(dataFolder.toPath() + File.separator + "reset.dat");
+
+/**
+ How many ticks to wait between each batch of locations being written to the store.
+ */
+private static final long flushInterval = 20*5;
+
+/**
+ The most locations to keep in memory.
+ */
+private static final int recentLimit = 256;
+
+/**
+ The store, or null if it couldn't be opened.
+ */
+private static volatile @Nullable LocationStore store = null;
+
+/**
+ The {@link System#currentTimeMillis()} when the last bulk reset started, or 0 if the locations have never been reset.
+ */
+private static volatile long resetEpoch = 0;
+
+/**
+ The locations that haven't been written to the store yet.
+ */
+private static final ConcurrentHashMap<UUID, StoredLocation> pending = new ConcurrentHashMap<>();
+
+/**
+ The most recently used locations, with the least recently used first. This should only be used from the main thread.
+ */
+private static final LinkedHashMap<UUID, StoredLocation> recent = new LinkedHashMap<>(16, 0.75f, true) {
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<UUID, StoredLocation> eldest) {
+    return size() > recentLimit;
+  }
+};
+
+/**
+ The repeating task that writes the pending locations to the store.
+ */
+private static @Nullable BukkitTask flushTask = null;
+
+/**
+ Opens the store & starts writing locations to it in the background.
+ */
+public static void load() {
+  try {
+    store = new MappedLocationStore(storeFile);
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_parseStore.getResponse(Key.filePath.replaceWith(storeFile.getAbsolutePath())), e);
+  }
+
+  if (resetFile.exists()) {
+    try {
+      resetEpoch = ByteBuffer.wrap(Files.readAllBytes(resetFile.toPath())).getLong();
+    } catch (IOException | RuntimeException e) {
+      log.log(Level.WARNING, Lang.excepts_parseReset.getResponse(Key.filePath.replaceWith(resetFile.getAbsolutePath())), e);
+    }
+  }
+
+  if (flushTask == null) {
+    flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, LastLocations::flush, flushInterval, flushInterval);
+  }
+}
+
+/**
+ Stops writing locations in the background, writes any pending locations to the store & closes it.
+ */
+public static synchronized void close() {
+  if (flushTask != null) {
+    flushTask.cancel();
+    flushTask = null;
+  }
+
+  flush();
+
+  LocationStore closing = store;
+  if (closing == null) return;
+
+  store = null;
+  try {
+    closing.close();
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(storeFile.getAbsolutePath())), e);
+  }
+}
+
+/**
+ * @return The file the locations are stored in.
+ */
+public static @NotNull File getStoreFile() {
+  return storeFile;
+}
+
+/**
+ * @return The file the time of the last bulk reset is stored in.
+ */
+public static @NotNull File getResetFile() {
+  return resetFile;
+}
+
+/**
+ * @return The store, or null if it couldn't be opened. Any locations that are pending won't have been written to this yet.
+ */
+public static @Nullable LocationStore getStore() {
+  return store;
+}
+
+/**
+ * @return The {@link System#currentTimeMillis()} when the last bulk reset started, or 0 if the locations have never been reset.
+ * The locations in the data of players that were offline during the reset are from before this, so they shouldn't be used.
+ */
+public static long getResetEpoch() {
+  return resetEpoch;
+}
+
+/**
+ Records that every stored location was cleared by a reset that started at the given time. This should only be called from the io executor.
+ * @param startedAt The {@link System#currentTimeMillis()} when the reset started.
+ * @throws IOException If the time couldn't be written.
+ */
+public static void markReset(long startedAt) throws IOException {
+  writeAtomically(resetFile, ByteBuffer.allocate(Long.BYTES).putLong(startedAt).array());
+  resetEpoch = startedAt;
+}
+
+/**
+ Sets the last logout location of the given player. This should only be called from the main thread.
+ * @param player The uuid of the given player.
+ * @param location The given location. The world of this location must be loaded.
+ */
+public static void set(@NotNull UUID player, @NotNull Location location) {
+  StoredLocation stored = StoredLocation.of(location);
+
+  recent.put(player, stored);
+  pending.put(player, stored);
+}
+
+/**
+ Records the current location of the given online player, so it's used as their last logout location if the server crashes.<br>
+ Unlike {@link #set(UUID, Location)} this doesn't keep the location in memory once it has been written. This should only be called from the main thread.
+ * @param player The uuid of the given player.
+ * @param location The given location. The world of this location must be loaded.
+ * @return The recorded location.
+ */
+public static @NotNull StoredLocation checkpoint(@NotNull UUID player, @NotNull Location location) {
+  StoredLocation stored = StoredLocation.of(location);
+
+  //The location in memory would be older than this one.
+  recent.remove(player);
+  pending.put(player, stored);
+
+  return stored;
+}
+
+/**
+ Gets the last logout location of the given player. This should only be called from the main thread.
+ * @param player The uuid of the given player.
+ * @return The last logout location of the given player, or null if there isn't one.<br>
+ * If the location was cleared then a {@link StoredLocation#isCleared()} location is returned, as the player's data shouldn't be read for it instead.
+ */
+public static @Nullable StoredLocation get(@NotNull UUID player) {
+  StoredLocation location = recent.get(player);
+  if (location != null) return location;
+
+  location = pending.get(player);
+  if (location != null) return location;
+
+  LocationStore current = store;
+  if (current == null) return null;
+
+  location = current.get(player);
+  if (location != null) recent.put(player, location);
+
+  return location;
+}
+
+/**
+ Forgets the locations kept in memory, so they are read from the store again. This should be called after the store is changed directly.
+ This should only be called from the main thread.
+ */
+public static void clearRecent() {
+  recent.clear();
+}
+
+/**
+ Writes the pending locations to the store.
+ */
+public static synchronized void flush() {
+  LocationStore current = store;
+  if (current == null || pending.isEmpty()) return;
+
+  try {
+    for (Map.Entry<UUID, StoredLocation> entry : pending.entrySet()) {
+      current.put(entry.getKey(), entry.getValue());
+
+      //Only removes the location if it wasn't changed whilst it was being written.
+      pending.remove(entry.getKey(), entry.getValue());
+    }
+
+    current.flush();
+
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(storeFile.getAbsolutePath())), e);
+  }
+}
+
+}
@@ -0,0 +1,129 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static me.tye.spawnfix.utils.Util.plugin;
+
+public class LastLogin {
+
+/**
+ The key that the last login location is stored under, packed with {@link LocationType}.
+ */
+private static final NamespacedKey lastLogin = new NamespacedKey(plugin, "lastlogin");
+
+/**
+ The key that the {@link System#currentTimeMillis()} the last login location was stored at is stored under.
+ */
+private static final NamespacedKey lastLoginSaved = new NamespacedKey(plugin, "lastloginsaved");
+
+//The keys that the last login location was stored under in older versions.
+private static final NamespacedKey legacyWorld = new NamespacedKey(plugin, "lastloginworld");
+private static final NamespacedKey legacyX = new NamespacedKey(plugin, "lastloginx");
+private static final NamespacedKey legacyY = new NamespacedKey(plugin, "lastloginy");
+private static final NamespacedKey legacyZ = new NamespacedKey(plugin, "lastloginz");
+private static final NamespacedKey legacyYaw = new NamespacedKey(plugin, "lastloginyaw");
+private static final NamespacedKey legacyPitch = new NamespacedKey(plugin, "lastloginpitch");
+
+/**
+ Gets the location the given player last logged out at.<br>
+ If the location is still stored in the older format, then it is moved to the current format.
+ * @param player The given player.
+ * @return The last login location. The world of the location is null if it isn't loaded.<br>
+ * Or null if the player doesn't have a last login location, or it was stored before the last bulk reset.
+ */
+public static @Nullable Location get(@NotNull Player player) {
+  PersistentDataContainer dataContainer = player.getPersistentDataContainer();
+
+  Location location = read(dataContainer);
+  if (location == null) return null;
+
+  //The locations of players that were offline during a reset can't be removed, so they're ignored instead. Locations stored before the time was added count as the oldest.
+  Long saved = dataContainer.get(lastLoginSaved, PersistentDataType.LONG);
+  if ((saved == null ? 0 : saved) < LastLocations.getResetEpoch()) return null;
+
+  return location;
+}
+
+/**
+ Reads the last login location from the given data container, moving it to the current format if needed.
+ * @param dataContainer The data container of the player.
+ * @return The last login location. The world of the location is null if it isn't loaded.<br>
+ * Or null if the player doesn't have a last login location.
+ */
+private static @Nullable Location read(@NotNull PersistentDataContainer dataContainer) {
+  try {
+    Location location = dataContainer.get(lastLogin, LocationType.type);
+    if (location != null) return location;
+
+  } catch (IllegalArgumentException ignore) {
+    //If the stored location can't be read then the older format is checked instead.
+  }
+
+  return migrate(dataContainer);
+}
+
+/**
+ Stores the given location as the location the given player last logged out at.
+ * @param player The given player.
+ * @param location The given location. The world of this location must be loaded.
+ */
+public static void set(@NotNull Player player, @NotNull Location location) {
+  PersistentDataContainer dataContainer = player.getPersistentDataContainer();
+
+  dataContainer.set(lastLogin, LocationType.type, location);
+  dataContainer.set(lastLoginSaved, PersistentDataType.LONG, System.currentTimeMillis());
+  removeLegacy(dataContainer);
+}
+
+/**
+ Moves the last login location from the older six key format to the current format.
+ * @param dataContainer The data container of the player.
+ * @return The last login location. The world of the location is null if it isn't loaded.<br>
+ * Or null if the older format isn't present.
+ */
+private static @Nullable Location migrate(@NotNull PersistentDataContainer dataContainer) {
+  String worldName = dataContainer.get(legacyWorld, PersistentDataType.STRING);
+  Double x = dataContainer.get(legacyX, PersistentDataType.DOUBLE);
+  Double y = dataContainer.get(legacyY, PersistentDataType.DOUBLE);
+  Double z = dataContainer.get(legacyZ, PersistentDataType.DOUBLE);
+  Float yaw = dataContainer.get(legacyYaw, PersistentDataType.FLOAT);
+  Float pitch = dataContainer.get(legacyPitch, PersistentDataType.FLOAT);
+
+  if (worldName == null || x == null || y == null || z == null || yaw == null || pitch == null) {
+    return null;
+  }
+
+  World world = Bukkit.getWorld(worldName);
+  Location location = new Location(world, x, y, z, yaw, pitch);
+
+  //The world uuid is needed for the current format, so the older format is kept until the world is loaded.
+  if (world != null) {
+    dataContainer.set(lastLogin, LocationType.type, location);
+    removeLegacy(dataContainer);
+  }
+
+  return location;
+}
+
+/**
+ Removes the older six key format from the given data container.
+ * @param dataContainer The given data container.
+ */
+private static void removeLegacy(@NotNull PersistentDataContainer dataContainer) {
+  dataContainer.remove(legacyWorld);
+  dataContainer.remove(legacyX);
+  dataContainer.remove(legacyY);
+  dataContainer.remove(legacyZ);
+  dataContainer.remove(legacyYaw);
+  dataContainer.remove(legacyPitch);
+}
+
+}
@@ -0,0 +1,74 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ Stores the last logout location of each player by their uuid, so they can be read whilst the player is offline.<br>
+ Implementations must be safe to use from multiple threads.
+ */
+public interface LocationStore {
+
+/**
+ * @param player The uuid of the given player.
+ * @return The stored location of the given player, or null if there isn't one.
+ */
+@Nullable StoredLocation get(@NotNull UUID player);
+
+/**
+ Stores the given location for the given player, replacing any location that is already stored for them.
+ * @param player The uuid of the given player.
+ * @param location The given location.
+ */
+void put(@NotNull UUID player, @NotNull StoredLocation location) throws IOException;
+
+/**
+ Removes the stored location of the given player.
+ * @param player The uuid of the given player.
+ * @return True if the player had a stored location.
+ */
+boolean remove(@NotNull UUID player) throws IOException;
+
+/**
+ * @return The amount of players with a stored location.
+ */
+int size();
+
+/**
+ Visits the next batch of stored locations, letting the visitor replace each one.<br>
+ Locations can be visited more than once if the store is reorganised between batches, so visitors should give the same result when run again.
+ Locations that are added or removed between batches might not be visited.
+ * @param cursor The cursor returned by the last batch, or 0 to start from the beginning.
+ * @param limit The most locations to check in this batch.
+ * @param visitor The visitor to run on each stored location.
+ * @return The cursor to continue from, or -1 if every location has been visited.
+ */
+long scan(long cursor, int limit, @NotNull Visitor visitor) throws IOException;
+
+/**
+ Makes sure every change so far has been written to the disk.
+ */
+void flush() throws IOException;
+
+/**
+ Flushes the store & releases any files it has open. The store shouldn't be used after this.
+ */
+void close() throws IOException;
+
+/**
+ Visits the locations in a store with {@link #scan(long, int, Visitor)}.
+ */
+@FunctionalInterface
+interface Visitor {
+  /**
+   * @param player The uuid of the player the location is stored for.
+   * @param location The stored location.
+   * @return The location to replace the stored location with, or null to leave it unchanged.
+   */
+  @Nullable StoredLocation visit(@NotNull UUID player, @NotNull StoredLocation location);
+}
+
+}
@@ -0,0 +1,86 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ Stores a whole location as one compact byte array in a persistent data container.<br>
+ The layout is: version byte, world uuid (two longs), x, y, z (doubles), yaw, pitch (floats).
+ */
+public class LocationType implements PersistentDataType<byte[], Location> {
+
+/**
+ The shared instance of this type.
+ */
+public static final LocationType type = new LocationType();
+
+/**
+ The current version of the byte layout.
+ */
+private static final byte version = 1;
+
+/**
+ The amount of bytes a location takes up in the current version.
+ */
+private static final int size = 1 + Long.BYTES*2 + Double.BYTES*3 + Float.BYTES*2;
+
+private LocationType() {}
+
+@Override
+public @NotNull Class<byte[]> getPrimitiveType() {
+  return byte[].class;
+}
+
+@Override
+public @NotNull Class<Location> getComplexType() {
+  return Location.class;
+}
+
+/**
+ * @param location The location to store. The world of this location must be loaded.
+ * @param context The context of the persistent data container.
+ * @return The given location packed into a byte array.
+ */
+@Override
+public byte[] toPrimitive(@NotNull Location location, @NotNull PersistentDataAdapterContext context) {
+  UUID worldUuid = location.getWorld().getUID();
+
+  ByteBuffer buffer = ByteBuffer.allocate(size);
+  buffer.put(version);
+  buffer.putLong(worldUuid.getMostSignificantBits());
+  buffer.putLong(worldUuid.getLeastSignificantBits());
+  buffer.putDouble(location.getX());
+  buffer.putDouble(location.getY());
+  buffer.putDouble(location.getZ());
+  buffer.putFloat(location.getYaw());
+  buffer.putFloat(location.getPitch());
+
+  return buffer.array();
+}
+
+/**
+ * @param bytes The packed location.
+ * @param context The context of the persistent data container.
+ * @return The location unpacked from the given bytes. The world of the location is null if it isn't loaded.
+ * @throws IllegalArgumentException If the given bytes weren't packed by a known version of this type.
+ */
+@Override
+public @NotNull Location fromPrimitive(byte[] bytes, @NotNull PersistentDataAdapterContext context) {
+  if (bytes.length != size || bytes[0] != version) {
+    throw new IllegalArgumentException("Unknown packed location format.");
+  }
+
+  ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, size-1);
+  World world = Bukkit.getWorld(new UUID(buffer.getLong(), buffer.getLong()));
+
+  return new Location(world, buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getFloat(), buffer.getFloat());
+}
+
+}
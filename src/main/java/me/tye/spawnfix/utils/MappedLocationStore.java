@@ -0,0 +1,553 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.log;
+
+/**
+ A {@link LocationStore} that keeps the locations in a memory-mapped file, so any player's location can be read without loading the whole file.<br>
+ The file is a hash table of fixed-size records keyed by player uuid, using open addressing with linear probing.
+ The table is doubled in size once it is half full.<br>
+ <br>
+ Only one thread changes the table at a time. Lookups only wait for each change to be written, not for a whole resize,
+ as the old table is copied to the resize file first & lookups are read from it until the resize has finished.<br>
+ <br>
+ The file starts with a header of {@link #headerSize} bytes: the magic number, the version, the capacity, the amount of records & the state.
+ Each record is {@link #recordSize} bytes: the player uuid, the world uuid, x, y & z as doubles, then yaw & pitch as floats. Empty records are all zeros.
+ */
+public class MappedLocationStore implements LocationStore {
+
+private static final int magic = 0x53464C53;
+private static final int version = 1;
+
+private static final int headerSize = 64;
+private static final int recordSize = 64;
+
+private static final int initialCapacity = 1024;
+
+/**
+ The largest capacity the table can have, as a mapped file can't be larger than 2GB.
+ */
+private static final int maxCapacity = 1 << 24;
+
+/**
+ The table is in a usable state.
+ */
+private static final int stateClean = 0;
+
+/**
+ The table was being resized. The old table was copied to the resize file first, so its records can be inserted again if the resize didn't finish.
+ */
+private static final int stateResizing = 1;
+
+private final File file;
+private final File resizeFile;
+private final FileChannel channel;
+
+/**
+ Held whilst the table is being changed, so only one thread changes it at a time.<br>
+ The monitor of this store is only held for as long as each record takes to be changed, so lookups don't wait for a resize.
+ */
+private final Object writeLock = new Object();
+
+private MappedByteBuffer buffer;
+private int capacity;
+private int size;
+
+/**
+ The old table in the resize file, whilst the table is being resized. Lookups are read from this instead, as the table is emptied & filled again during a resize.<br>
+ Null if the table isn't being resized.
+ */
+private @Nullable FileChannel resizeReader = null;
+private int resizeCapacity;
+private int resizeSize;
+
+/**
+ Increased each time the table is resized, as the records move to different slots. This is stored in the cursors given by {@link #scan(long, int, Visitor)}.
+ */
+private int layout = 0;
+
+/**
+ Opens the store in the given file, creating it if it doesn't exist.<br>
+ If the file can't be read as a store, then it is emptied.
+ * @param file The given file.
+ * @throws IOException If the file couldn't be opened or mapped.
+ */
+public MappedLocationStore(@NotNull File file) throws IOException {
+  this.file = file;
+  this.resizeFile = new File(file.getPath()+".resize");
+  this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+  try {
+    open();
+  } catch (IOException e) {
+    channel.close();
+    throw e;
+  }
+}
+
+/**
+ Reads the header of the file, recovering from an unfinished resize or emptying the file if it can't be read.
+ */
+private void open() throws IOException {
+  if (channel.size() < headerSize) {
+    reset();
+    return;
+  }
+
+  ByteBuffer header = ByteBuffer.allocate(headerSize);
+  channel.read(header, 0);
+
+  int fileMagic = header.getInt(0);
+  int fileVersion = header.getInt(4);
+  int fileCapacity = header.getInt(8);
+  int fileSize = header.getInt(12);
+  int fileState = header.getInt(16);
+
+  boolean valid = fileMagic == magic
+      && fileVersion == version
+      && fileCapacity >= initialCapacity && fileCapacity <= maxCapacity && Integer.bitCount(fileCapacity) == 1
+      && fileSize >= 0 && fileSize <= fileCapacity/2
+      && channel.size() >= headerSize + (long) fileCapacity*recordSize;
+
+  if (!valid) {
+    log.warning(Lang.excepts_parseStore.getResponse(Key.filePath.replaceWith(file.getAbsolutePath())));
+    reset();
+    return;
+  }
+
+  capacity = fileCapacity;
+  size = fileSize;
+  buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize + (long) capacity*recordSize);
+
+  if (fileState == stateResizing) {
+    if (resizeFile.exists()) {
+      clearTable();
+      insertAll();
+      Files.deleteIfExists(resizeFile.toPath());
+    } else {
+      log.warning(Lang.excepts_parseStore.getResponse(Key.filePath.replaceWith(file.getAbsolutePath())));
+      reset();
+    }
+  }
+}
+
+@Override
+public synchronized @Nullable StoredLocation get(@NotNull UUID player) {
+  long msb = player.getMostSignificantBits();
+  long lsb = player.getLeastSignificantBits();
+
+  if (resizeReader != null) return getResizing(resizeReader, msb, lsb);
+
+  int slot = find(msb, lsb);
+  if (slot < 0) return null;
+
+  return readRecord(buffer, offset(slot));
+}
+
+@Override
+public void put(@NotNull UUID player, @NotNull StoredLocation location) throws IOException {
+  long msb = player.getMostSignificantBits();
+  long lsb = player.getLeastSignificantBits();
+
+  synchronized (writeLock) {
+    boolean full;
+    synchronized (this) {
+      full = find(msb, lsb) < 0 && size+1 > capacity/2;
+    }
+
+    //The table is grown without holding the monitor, so lookups can carry on during the resize.
+    if (full) grow();
+
+    synchronized (this) {
+      putRecord(msb, lsb, location);
+    }
+  }
+}
+
+@Override
+public boolean remove(@NotNull UUID player) {
+  synchronized (writeLock) {
+    synchronized (this) {
+      return removeRecord(player.getMostSignificantBits(), player.getLeastSignificantBits());
+    }
+  }
+}
+
+@Override
+public synchronized int size() {
+  return resizeReader != null ? resizeSize : size;
+}
+
+@Override
+public long scan(long cursor, int limit, @NotNull Visitor visitor) {
+  synchronized (writeLock) {
+    synchronized (this) {
+      return scanRecords(cursor, limit, visitor);
+    }
+  }
+}
+
+@Override
+public void flush() {
+  //Lookups only read the buffer, so they can carry on whilst it is written to the disk.
+  synchronized (writeLock) {
+    buffer.force();
+  }
+}
+
+@Override
+public void close() throws IOException {
+  synchronized (writeLock) {
+    synchronized (this) {
+      buffer.force();
+      channel.close();
+    }
+  }
+}
+
+/**
+ Stores the given location for the given player. The table must have room for the player.
+ * @param msb The most significant bits of the uuid of the given player.
+ * @param lsb The least significant bits of the uuid of the given player.
+ * @param location The given location.
+ */
+private void putRecord(long msb, long lsb, @NotNull StoredLocation location) {
+  int slot = find(msb, lsb);
+
+  if (slot < 0) {
+    slot = -slot-1;
+    size++;
+    buffer.putInt(12, size);
+  }
+
+  int offset = offset(slot);
+  writeRecord(offset, location);
+
+  //The key is written last, so a record is never seen with the values of another player.
+  buffer.putLong(offset, msb);
+  buffer.putLong(offset+8, lsb);
+}
+
+/**
+ Removes the record of the given player, moving back any records after it that would no longer be found.
+ * @param msb The most significant bits of the uuid of the given player.
+ * @param lsb The least significant bits of the uuid of the given player.
+ * @return True if the player had a record.
+ */
+private boolean removeRecord(long msb, long lsb) {
+  int slot = find(msb, lsb);
+  if (slot < 0) return false;
+
+  int mask = capacity-1;
+  int hole = slot;
+
+  //Moves back any records after the removed one that would no longer be found past the gap.
+  for (int next = (hole+1) & mask; ; next = (next+1) & mask) {
+    int nextOffset = offset(next);
+    long nextMsb = buffer.getLong(nextOffset);
+    long nextLsb = buffer.getLong(nextOffset+8);
+    if (nextMsb == 0 && nextLsb == 0) break;
+
+    int ideal = hash(nextMsb, nextLsb) & mask;
+    if (((next - ideal) & mask) < ((next - hole) & mask)) continue;
+
+    copyRecord(next, hole);
+    hole = next;
+  }
+
+  clearRecord(hole);
+  size--;
+  buffer.putInt(12, size);
+  return true;
+}
+
+/**
+ Visits the next batch of records, as described by {@link #scan(long, int, Visitor)}.
+ */
+private long scanRecords(long cursor, int limit, @NotNull Visitor visitor) {
+  //The slots of the records change when the table is resized, so the scan starts again.
+  int slot = (int) (cursor >>> 32) == layout ? (int) cursor : 0;
+  int checked = 0;
+
+  for (; slot < capacity && checked < limit; slot++) {
+    int offset = offset(slot);
+    long msb = buffer.getLong(offset);
+    long lsb = buffer.getLong(offset+8);
+    if (msb == 0 && lsb == 0) continue;
+
+    checked++;
+
+    StoredLocation replacement = visitor.visit(new UUID(msb, lsb), readRecord(buffer, offset));
+    if (replacement != null) writeRecord(offset, replacement);
+  }
+
+  if (slot >= capacity) return -1;
+  return ((long) layout << 32) | slot;
+}
+
+/**
+ Finds the slot of the given player.
+ * @param msb The most significant bits of the uuid of the given player.
+ * @param lsb The least significant bits of the uuid of the given player.
+ * @return The slot of the given player. Or if the player isn't stored, -(the empty slot they would be stored in)-1.
+ */
+private int find(long msb, long lsb) {
+  int mask = capacity-1;
+
+  //The table is never more than half full, so there is always an empty slot to stop at.
+  for (int slot = hash(msb, lsb) & mask; ; slot = (slot+1) & mask) {
+    int offset = offset(slot);
+    long slotMsb = buffer.getLong(offset);
+    long slotLsb = buffer.getLong(offset+8);
+
+    if (slotMsb == 0 && slotLsb == 0) return -slot-1;
+    if (slotMsb == msb && slotLsb == lsb) return slot;
+  }
+}
+
+/**
+ Finds the given player in the old table whilst the table is being resized.
+ * @param reader The resize file, which holds the old table.
+ * @param msb The most significant bits of the uuid of the given player.
+ * @param lsb The least significant bits of the uuid of the given player.
+ * @return The stored location of the given player, or null if there isn't one.
+ */
+private @Nullable StoredLocation getResizing(@NotNull FileChannel reader, long msb, long lsb) {
+  ByteBuffer record = ByteBuffer.allocate(recordSize);
+  int mask = resizeCapacity-1;
+
+  try {
+    for (int slot = hash(msb, lsb) & mask; ; slot = (slot+1) & mask) {
+      record.clear();
+      long position = (long) slot*recordSize;
+
+      while (record.hasRemaining()) {
+        if (reader.read(record, position+record.position()) < 0) return null;
+      }
+
+      long slotMsb = record.getLong(0);
+      long slotLsb = record.getLong(8);
+
+      if (slotMsb == 0 && slotLsb == 0) return null;
+      if (slotMsb == msb && slotLsb == lsb) return readRecord(record, 0);
+    }
+
+  } catch (IOException e) {
+    //The location is treated as not being stored, rather than making the lookup wait for the resize.
+    return null;
+  }
+}
+
+/**
+ * @param msb The most significant bits of a uuid.
+ * @param lsb The least significant bits of a uuid.
+ * @return The hash of the uuid. This is masked by the capacity to get the slot the uuid would be stored in if there were no collisions.
+ */
+private static int hash(long msb, long lsb) {
+  long hash = msb ^ lsb;
+  hash ^= hash >>> 33;
+  hash *= 0xFF51AFD7ED558CCDL;
+  hash ^= hash >>> 33;
+  return (int) hash;
+}
+
+/**
+ * @param slot The given slot.
+ * @return The offset of the record in the given slot in the file.
+ */
+private static int offset(int slot) {
+  return headerSize + slot*recordSize;
+}
+
+/**
+ * @param source The buffer to read the record from.
+ * @param offset The offset of the record in the given buffer.
+ * @return The location stored in the record.
+ */
+private static @NotNull StoredLocation readRecord(@NotNull ByteBuffer source, int offset) {
+  return new StoredLocation(
+      new UUID(source.getLong(offset+16), source.getLong(offset+24)),
+      source.getDouble(offset+32),
+      source.getDouble(offset+40),
+      source.getDouble(offset+48),
+      source.getFloat(offset+56),
+      source.getFloat(offset+60)
+  );
+}
+
+/**
+ Writes the given location into the record at the given offset, without changing the key of the record.
+ * @param offset The offset of a record in the file.
+ * @param location The given location.
+ */
+private void writeRecord(int offset, @NotNull StoredLocation location) {
+  buffer.putLong(offset+16, location.world().getMostSignificantBits());
+  buffer.putLong(offset+24, location.world().getLeastSignificantBits());
+  buffer.putDouble(offset+32, location.x());
+  buffer.putDouble(offset+40, location.y());
+  buffer.putDouble(offset+48, location.z());
+  buffer.putFloat(offset+56, location.yaw());
+  buffer.putFloat(offset+60, location.pitch());
+}
+
+private void copyRecord(int from, int to) {
+  int fromOffset = offset(from);
+  int toOffset = offset(to);
+
+  for (int i = 0; i < recordSize; i += Long.BYTES) {
+    buffer.putLong(toOffset+i, buffer.getLong(fromOffset+i));
+  }
+}
+
+private void clearRecord(int slot) {
+  int offset = offset(slot);
+
+  for (int i = 0; i < recordSize; i += Long.BYTES) {
+    buffer.putLong(offset+i, 0);
+  }
+}
+
+private void clearTable() {
+  for (int slot = 0; slot < capacity; slot++) {
+    clearRecord(slot);
+  }
+  size = 0;
+}
+
+/**
+ Empties the file & creates a new table with the initial capacity.
+ */
+private void reset() throws IOException {
+  channel.truncate(0);
+
+  capacity = initialCapacity;
+  size = 0;
+  buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize + (long) capacity*recordSize);
+
+  clearTable();
+  writeHeader(stateClean);
+  buffer.force();
+
+  Files.deleteIfExists(resizeFile.toPath());
+}
+
+/**
+ Doubles the capacity of the table. This must be called whilst holding {@link #writeLock}, but not the monitor of this store.<br>
+ The old table is copied to the resize file, then the table is enlarged & emptied, then the records are inserted again from the resize file.
+ Lookups are read from the resize file whilst this happens.
+ The file is marked as resizing whilst this happens, so it can be finished when the store is next opened if it is interrupted.
+ */
+private void grow() throws IOException {
+  if (capacity >= maxCapacity) {
+    throw new IOException("\""+file.getAbsolutePath()+"\" can't store any more locations.");
+  }
+
+  //Only this thread changes the table, so it can be read without the monitor.
+  try (FileChannel out = FileChannel.open(resizeFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+    ByteBuffer table = buffer.duplicate();
+    table.position(headerSize).limit(headerSize + capacity*recordSize);
+
+    while (table.hasRemaining()) out.write(table);
+    out.force(true);
+  }
+
+  FileChannel reader = FileChannel.open(resizeFile.toPath(), StandardOpenOption.READ);
+  boolean resized = false;
+
+  try {
+    synchronized (this) {
+      resizeReader = reader;
+      resizeCapacity = capacity;
+      resizeSize = size;
+      writeHeader(stateResizing);
+    }
+
+    buffer.force();
+
+    //Lookups are read from the resize file from here, so the table can be changed without the monitor.
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize + (long) capacity*2*recordSize);
+    capacity *= 2;
+    layout++;
+
+    clearTable();
+    writeHeader(stateResizing);
+    insertAll();
+    resized = true;
+
+  } finally {
+    synchronized (this) {
+      resizeReader = null;
+    }
+
+    reader.close();
+  }
+
+  if (resized) Files.deleteIfExists(resizeFile.toPath());
+}
+
+/**
+ Inserts every record from the resize file into the table, then marks the table as usable.<br>
+ Empty records in the resize file are skipped, so it can hold either a copy of the old table or just its records.
+ */
+private void insertAll() {
+  try (FileChannel in = FileChannel.open(resizeFile.toPath(), StandardOpenOption.READ)) {
+    ByteBuffer batch = ByteBuffer.allocate(recordSize*1024);
+
+    while (in.read(batch) > 0 || batch.position() > 0) {
+      batch.flip();
+
+      while (batch.remaining() >= recordSize) {
+        long msb = batch.getLong();
+        long lsb = batch.getLong();
+
+        int slot = msb == 0 && lsb == 0 ? 0 : find(msb, lsb);
+
+        //Skips empty records & records that have already been inserted.
+        if (slot >= 0) {
+          batch.position(batch.position()+recordSize-16);
+          continue;
+        }
+
+        int offset = offset(-slot-1);
+        buffer.putLong(offset, msb);
+        buffer.putLong(offset+8, lsb);
+        for (int i = 16; i < recordSize; i += Long.BYTES) {
+          buffer.putLong(offset+i, batch.getLong());
+        }
+        size++;
+      }
+
+      //Stops if the file ends part way through a record.
+      if (batch.hasRemaining() && in.position() >= in.size()) break;
+      batch.compact();
+    }
+
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_parseStore.getResponse(Key.filePath.replaceWith(resizeFile.getAbsolutePath())), e);
+  }
+
+  writeHeader(stateClean);
+  buffer.force();
+}
+
+private void writeHeader(int state) {
+  buffer.putInt(0, magic);
+  buffer.putInt(4, version);
+  buffer.putInt(8, capacity);
+  buffer.putInt(12, size);
+  buffer.putInt(16, state);
+}
+
+}
@@ -0,0 +1,176 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Counts what SpawnFix does & how long it takes, so its cost can be seen with "/sf stats".<br>
+ If "metrics.dumpInterval" is above 0, the metrics are also written to "metrics.prom" in the Prometheus text format.
+ */
+public class Metrics {
+
+public static final LongAdder joins = new LongAdder();
+public static final LongAdder respawns = new LongAdder();
+public static final LongAdder correctionsScheduled = new LongAdder();
+public static final LongAdder teleports = new LongAdder();
+public static final LongAdder spawnsSet = new LongAdder();
+
+/**
+ The amount of teleports made by each correction, recorded once the correction finishes.
+ */
+public static final Histogram teleportsPerCorrection = new Histogram(0, 1, 2, 3, 5, 10, 20, 50);
+
+//The nanoseconds spent in each handler.
+public static final Histogram joinNanos = nanosHistogram();
+public static final Histogram respawnNanos = nanosHistogram();
+public static final Histogram correctionTickNanos = nanosHistogram();
+
+private static @Nullable BukkitTask dumpTask = null;
+
+/**
+ The amount of seconds since the metrics were last written to the file.
+ */
+private static int secondsSinceDump = 0;
+
+/**
+ Starts checking once a second if the metrics should be written to the file.
+ */
+public static void start() {
+  if (dumpTask != null) return;
+
+  dumpTask = Bukkit.getScheduler().runTaskTimer(plugin, Metrics::tickDump, 20, 20);
+}
+
+/**
+ Stops writing the metrics to the file.
+ */
+public static void stop() {
+  if (dumpTask == null) return;
+
+  dumpTask.cancel();
+  dumpTask = null;
+}
+
+/**
+ Sends a summary of the metrics to the given sender.
+ * @param sender The given sender.
+ */
+public static void sendSummary(@NotNull CommandSender sender) {
+  sender.sendMessage(Lang.commands_stats_header.getResponse(sender));
+
+  sendLine(sender, Lang.commands_stats_joins, String.valueOf(joins.sum()));
+  sendLine(sender, Lang.commands_stats_respawns, String.valueOf(respawns.sum()));
+  sendLine(sender, Lang.commands_stats_correctionsScheduled, String.valueOf(correctionsScheduled.sum()));
+  sendLine(sender, Lang.commands_stats_liveCorrections, String.valueOf(CorrectionEngine.liveCorrections()));
+  sendLine(sender, Lang.commands_stats_teleports, String.valueOf(teleports.sum()));
+  sendLine(sender, Lang.commands_stats_spawnsSet, String.valueOf(spawnsSet.sum()));
+  sendLine(sender, Lang.commands_stats_teleportsPerCorrection, summarise(sender, teleportsPerCorrection, 1, ""));
+  sendLine(sender, Lang.commands_stats_joinHandler, summarise(sender, joinNanos, 1000, "us"));
+  sendLine(sender, Lang.commands_stats_respawnHandler, summarise(sender, respawnNanos, 1000, "us"));
+  sendLine(sender, Lang.commands_stats_correctionTick, summarise(sender, correctionTickNanos, 1000, "us"));
+}
+
+/**
+ Writes the metrics to the file if "metrics.dumpInterval" seconds have passed since they were last written.
+ */
+private static void tickDump() {
+  int interval = Config.get().metricsDumpInterval;
+  if (interval <= 0) return;
+
+  secondsSinceDump++;
+  if (secondsSinceDump < interval) return;
+  secondsSinceDump = 0;
+
+  //The file is only resolved when the metrics are written, so they can be recorded without this plugin being loaded.
+  File dumpFile = new File(dataFolder.toPath() + File.separator + "metrics.prom");
+
+  //The metrics are collected on the main thread & written in the background.
+  byte[] prometheus = toPrometheus().getBytes(StandardCharsets.UTF_8);
+  ioExecutor.execute(() -> {
+    try {
+      writeAtomically(dumpFile, prometheus);
+    } catch (IOException e) {
+      log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(dumpFile.getAbsolutePath())), e);
+    }
+  });
+}
+
+/**
+ * @return The metrics in the Prometheus text format.
+ */
+private static @NotNull String toPrometheus() {
+  StringBuilder builder = new StringBuilder(2048);
+
+  appendCounter("spawnfix_joins_total", joins, builder);
+  appendCounter("spawnfix_respawns_total", respawns, builder);
+  appendCounter("spawnfix_corrections_scheduled_total", correctionsScheduled, builder);
+  appendCounter("spawnfix_teleports_total", teleports, builder);
+  appendCounter("spawnfix_spawns_set_total", spawnsSet, builder);
+
+  builder.append("# TYPE spawnfix_live_corrections gauge\n")
+         .append("spawnfix_live_corrections ").append(CorrectionEngine.liveCorrections()).append('\n');
+
+  teleportsPerCorrection.appendPrometheus("spawnfix_teleports_per_correction", builder);
+  joinNanos.appendPrometheus("spawnfix_join_handler_nanoseconds", builder);
+  respawnNanos.appendPrometheus("spawnfix_respawn_handler_nanoseconds", builder);
+  correctionTickNanos.appendPrometheus("spawnfix_correction_tick_nanoseconds", builder);
+
+  return builder.toString();
+}
+
+private static void appendCounter(@NotNull String name, @NotNull LongAdder counter, @NotNull StringBuilder builder) {
+  builder.append("# TYPE ").append(name).append(" counter\n")
+         .append(name).append(' ').append(counter.sum()).append('\n');
+}
+
+/**
+ Sends a line of the summary to the given sender.
+ * @param sender The given sender.
+ * @param label The label of the line, in the language of the given sender.
+ * @param value The value of the line.
+ */
+private static void sendLine(@NotNull CommandSender sender, @NotNull Lang label, @NotNull String value) {
+  sender.sendMessage(Lang.commands_stats_line.getResponse(sender, Key.name.replaceWith(label.getResponse(sender)), Key.value.replaceWith(value)));
+}
+
+/**
+ * @param sender The sender the summary will be sent to.
+ * @param histogram The histogram to summarise.
+ * @param divisor The amount to divide each value by for displaying.
+ * @param unit The unit to display after each value.
+ * @return The count, mean & 99th percentile of the given histogram, in the language of the given sender.
+ */
+private static @NotNull String summarise(@NotNull CommandSender sender, @NotNull Histogram histogram, long divisor, @NotNull String unit) {
+  long count = histogram.count();
+  if (count == 0) return "0";
+
+  double mean = (double) histogram.sum() / count / divisor;
+  long p99 = histogram.quantileBound(0.99);
+  String p99String = p99 == -1 ? Lang.commands_stats_higher.getResponse(sender) : Lang.commands_stats_atMost.getResponse(sender, Key.value.replaceWith((p99 / divisor) + unit));
+
+  return Lang.commands_stats_summary.getResponse(sender,
+      Key.value.replaceWith(String.valueOf(count)),
+      Key.mean.replaceWith(String.format("%.1f%s", mean, unit)),
+      Key.p99.replaceWith(p99String)
+  );
+}
+
+/**
+ * @return A new histogram with buckets from one microsecond up to fifty milliseconds.
+ */
+private static @NotNull Histogram nanosHistogram() {
+  return new Histogram(1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000, 10_000_000, 50_000_000);
+}
+
+}
@@ -0,0 +1,427 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static me.tye.spawnfix.utils.Util.plugin;
+
+/**
+ Finds safe places for players to stand near to the locations they are being corrected to, if "teleport.safeCheck" is true.<br>
+ Locations that aren't safe are searched around in the background, using snapshots of the chunks around them, with each chunk searched in parallel.
+ The results are cached for each chunk until a block changes nearby, or the chunk is unloaded.<br>
+ This should only be used from the main thread.
+ */
+public class SafeLocations {
+
+/**
+ The largest radius that can be searched. This is one chunk so that a block change only needs to invalidate the results of the chunks next to it.
+ */
+private static final int maxRadius = 16;
+
+/**
+ The result of a search that found nothing safe, so the player is left at the original location.<br>
+ No block packs to this, as it is outside the world border.
+ */
+private static final long noneFound = Long.MIN_VALUE;
+
+/**
+ Blocks that hurt players standing in or on them.
+ */
+private static final EnumSet<Material> hazards = EnumSet.of(
+    Material.LAVA,
+    Material.FIRE,
+    Material.SOUL_FIRE,
+    Material.MAGMA_BLOCK,
+    Material.CACTUS,
+    Material.CAMPFIRE,
+    Material.SOUL_CAMPFIRE,
+    Material.SWEET_BERRY_BUSH,
+    Material.WITHER_ROSE,
+    Material.POWDER_SNOW
+);
+
+/**
+ The cached results & running searches for each world, by world uuid.
+ */
+private static final HashMap<UUID, WorldCache> caches = new HashMap<>();
+
+/**
+ Gets a safe location near to the given location. If the given location is already safe, then it is returned unchanged.<br>
+ If the safe location isn't known yet, then it is searched for in the background & null is returned until the search has finished.
+ * @param target The given location. The chunk of this location must be loaded.
+ * @return The given location, a safe location near to it, or null if the search hasn't finished yet.<br>
+ * If there is no safe location nearby then the given location is returned.
+ */
+public static @Nullable Location find(@NotNull Location target) {
+  World world = target.getWorld();
+  int x = target.getBlockX();
+  int y = target.getBlockY();
+  int z = target.getBlockZ();
+
+  long block = packBlock(x, y, z);
+  long chunk = packChunk(x >> 4, z >> 4);
+
+  int minY = world.getMinHeight();
+  int maxY = world.getMaxHeight();
+
+  WorldCache cache = caches.computeIfAbsent(world.getUID(), uuid -> new WorldCache());
+
+  //Not every block change has an event, so the cached position is checked again before it's used.
+  HashMap<Long, Long> results = cache.results.get(chunk);
+  if (results != null) {
+    Long safe = results.get(block);
+    if (safe != null) {
+      if (isStillSafe(world, safe, minY, maxY)) return toLocation(target, safe);
+      results.remove(block);
+    }
+  }
+
+  Search search = cache.searches.get(block);
+  if (search != null) {
+    if (!search.done) return null;
+
+    //The result of a search that was made stale by a block change is used once, without being cached.
+    cache.searches.remove(block);
+    if (isStillSafe(world, search.result, minY, maxY)) return toLocation(target, search.result);
+  }
+
+  //Most locations are already safe, so they are checked straight away without taking any snapshots.
+
+  if (isSafe(world, x, y, z, minY, maxY)) {
+    cache.results.computeIfAbsent(chunk, key -> new HashMap<>()).put(block, block);
+    return target;
+  }
+
+  startSearch(world, cache, x, y, z, minY, maxY);
+  return null;
+}
+
+/**
+ Gets a safe location near to the given location, for when the location has to be used straight away rather than on a later tick.<br>
+ If the result isn't known yet, then it is still searched for in the background, so it can be used by a correction later.
+ * @param target The given location.
+ * @return The given location, a safe location near to it, or null if the chunk of the location isn't loaded or the search hasn't finished yet.<br>
+ * If there is no safe location nearby then the given location is returned.
+ */
+public static @Nullable Location findNow(@NotNull Location target) {
+  //Checking a location in a chunk that isn't loaded would load it on the main thread.
+  if (!target.getWorld().isChunkLoaded(target.getBlockX() >> 4, target.getBlockZ() >> 4)) return null;
+
+  return find(target);
+}
+
+/**
+ Removes the cached results that could have been changed by the given block changing.
+ * @param changed The given block.
+ */
+public static void invalidate(@NotNull Block changed) {
+  if (caches.isEmpty()) return;
+
+  WorldCache cache = caches.get(changed.getWorld().getUID());
+  if (cache == null || (cache.results.isEmpty() && cache.searches.isEmpty())) return;
+
+  int chunkX = changed.getX() >> 4;
+  int chunkZ = changed.getZ() >> 4;
+
+  //The results of the chunks next to the changed one could have searched into it.
+  if (!cache.results.isEmpty()) {
+    for (int dx = -1; dx <= 1; dx++) {
+      for (int dz = -1; dz <= 1; dz++) {
+        cache.results.remove(packChunk(chunkX+dx, chunkZ+dz));
+      }
+    }
+  }
+
+  long chunk = packChunk(chunkX, chunkZ);
+  for (Search search : cache.searches.values()) {
+    if (search.reads(chunk)) search.stale = true;
+  }
+}
+
+/**
+ Removes the cached results & finished searches of the given chunk, as it has been unloaded.
+ * @param world The world of the given chunk.
+ * @param chunkX The x of the given chunk.
+ * @param chunkZ The z of the given chunk.
+ */
+public static void unload(@NotNull World world, int chunkX, int chunkZ) {
+  if (caches.isEmpty()) return;
+
+  WorldCache cache = caches.get(world.getUID());
+  if (cache == null) return;
+
+  cache.results.remove(packChunk(chunkX, chunkZ));
+  cache.searches.values().removeIf(search -> search.done && search.chunk == packChunk(chunkX, chunkZ));
+
+  if (cache.results.isEmpty() && cache.searches.isEmpty()) {
+    caches.remove(world.getUID());
+  }
+}
+
+/**
+ Removes every cached result.
+ */
+public static void clear() {
+  caches.clear();
+}
+
+/**
+ Takes snapshots of the loaded chunks around the given position, then searches each of them for a safe position in the background.<br>
+ The nearest safe position found is then cached on the main thread.
+ * @param world The world of the given position.
+ * @param cache The cache for the world.
+ * @param x The x of the given position.
+ * @param y The y of the given position.
+ * @param z The z of the given position.
+ * @param minY The lowest y of the world.
+ * @param maxY The highest y of the world, exclusive.
+ */
+private static void startSearch(@NotNull World world, @NotNull WorldCache cache, int x, int y, int z, int minY, int maxY) {
+  int radius = Math.max(0, Math.min(maxRadius, Config.get().teleportSafeRadius));
+  long block = packBlock(x, y, z);
+  long chunk = packChunk(x >> 4, z >> 4);
+
+  ArrayList<ChunkSnapshot> snapshots = new ArrayList<>();
+  for (int chunkX = (x-radius) >> 4; chunkX <= (x+radius) >> 4; chunkX++) {
+    for (int chunkZ = (z-radius) >> 4; chunkZ <= (z+radius) >> 4; chunkZ++) {
+      //Chunks that aren't loaded aren't searched, so nothing is loaded for the search.
+      if (!world.isChunkLoaded(chunkX, chunkZ)) continue;
+
+      snapshots.add(world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+    }
+  }
+
+  long[] chunks = new long[snapshots.size()];
+  for (int i = 0; i < chunks.length; i++) {
+    chunks[i] = packChunk(snapshots.get(i).getX(), snapshots.get(i).getZ());
+  }
+
+  Search search = new Search(chunk, chunks);
+  cache.searches.put(block, search);
+
+  @SuppressWarnings("unchecked")
+  CompletableFuture<long[]>[] futures = new CompletableFuture[snapshots.size()];
+  for (int i = 0; i < futures.length; i++) {
+    ChunkSnapshot snapshot = snapshots.get(i);
+    futures[i] = CompletableFuture.supplyAsync(() -> searchChunk(snapshot, x, y, z, radius, minY, maxY));
+  }
+
+  CompletableFuture.allOf(futures).whenComplete((ignored, throwable) -> {
+    //If nothing safe is found, then the player is left at the original location.
+    long nearest = noneFound;
+    long nearestDistance = Long.MAX_VALUE;
+
+    if (throwable == null) {
+      for (CompletableFuture<long[]> future : futures) {
+        long[] found = future.join();
+        if (found == null || found[1] >= nearestDistance) continue;
+
+        nearest = found[0];
+        nearestDistance = found[1];
+      }
+    }
+
+    long result = nearest;
+    if (!plugin.isEnabled()) return;
+
+    Bukkit.getScheduler().runTask(plugin, () -> {
+      //The cache could have been cleared whilst the search was running.
+      if (caches.get(world.getUID()) != cache || cache.searches.get(block) != search) return;
+
+      search.result = result;
+      search.done = true;
+
+      if (!search.stale) {
+        cache.searches.remove(block);
+        cache.results.computeIfAbsent(chunk, key -> new HashMap<>()).put(block, result);
+      }
+    });
+  });
+}
+
+/**
+ Searches the given chunk snapshot for the safe position nearest to the given position, within the given radius.<br>
+ This only reads from the snapshot, so it can be called off the main thread.
+ * @param snapshot The given chunk snapshot.
+ * @param x The x of the given position.
+ * @param y The y of the given position.
+ * @param z The z of the given position.
+ * @param radius The given radius.
+ * @param minY The lowest y of the world.
+ * @param maxY The highest y of the world, exclusive.
+ * @return The packed nearest safe position & its squared distance from the given position, or null if there are no safe positions.
+ */
+private static long[] searchChunk(@NotNull ChunkSnapshot snapshot, int x, int y, int z, int radius, int minY, int maxY) {
+  int baseX = snapshot.getX() << 4;
+  int baseZ = snapshot.getZ() << 4;
+
+  int fromX = Math.max(baseX, x-radius);
+  int toX = Math.min(baseX+15, x+radius);
+  int fromZ = Math.max(baseZ, z-radius);
+  int toZ = Math.min(baseZ+15, z+radius);
+  int fromY = Math.max(minY+1, y-radius);
+  int toY = Math.min(maxY-2, y+radius);
+
+  long[] nearest = null;
+
+  for (int blockX = fromX; blockX <= toX; blockX++) {
+    for (int blockZ = fromZ; blockZ <= toZ; blockZ++) {
+      for (int blockY = fromY; blockY <= toY; blockY++) {
+        long dx = blockX-x, dy = blockY-y, dz = blockZ-z;
+        long distance = dx*dx + dy*dy + dz*dz;
+
+        if (nearest != null && distance >= nearest[1]) continue;
+        if (!isSafe(snapshot.getBlockType(blockX-baseX, blockY-1, blockZ-baseZ), snapshot.getBlockType(blockX-baseX, blockY, blockZ-baseZ), snapshot.getBlockType(blockX-baseX, blockY+1, blockZ-baseZ))) continue;
+
+        nearest = new long[] {packBlock(blockX, blockY, blockZ), distance};
+      }
+    }
+  }
+
+  return nearest;
+}
+
+/**
+ Checks if a player can safely stand at the given position in the given world.
+ * @param world The given world.
+ * @param x The x of the given position.
+ * @param y The y of the given position.
+ * @param z The z of the given position.
+ * @param minY The lowest y of the world.
+ * @param maxY The highest y of the world, exclusive.
+ * @return True if the position is safe.
+ */
+private static boolean isSafe(@NotNull World world, int x, int y, int z, int minY, int maxY) {
+  if (y-1 < minY || y+1 >= maxY) return false;
+
+  return isSafe(world.getBlockAt(x, y-1, z).getType(), world.getBlockAt(x, y, z).getType(), world.getBlockAt(x, y+1, z).getType());
+}
+
+/**
+ Checks if the result of a search is still safe, without loading any chunks.
+ * @param world The world of the result.
+ * @param result The given result.
+ * @param minY The lowest y of the world.
+ * @param maxY The highest y of the world, exclusive.
+ * @return True if the result is still safe, or if the search found nothing safe.<br>
+ * False if the result is no longer safe, or if its chunk isn't loaded.
+ */
+private static boolean isStillSafe(@NotNull World world, long result, int minY, int maxY) {
+  if (result == noneFound) return true;
+
+  int x = unpackX(result);
+  int z = unpackZ(result);
+  if (!world.isChunkLoaded(x >> 4, z >> 4)) return false;
+
+  return isSafe(world, x, unpackY(result), z, minY, maxY);
+}
+
+/**
+ * @param ground The block the player would stand on.
+ * @param feet The block at the player's feet.
+ * @param head The block at the player's head.
+ * @return True if a player can safely stand on the given ground with the given blocks around them.
+ */
+static boolean isSafe(@NotNull Material ground, @NotNull Material feet, @NotNull Material head) {
+  return ground.isSolid() && !hazards.contains(ground)
+      && !feet.isSolid() && !hazards.contains(feet)
+      && !head.isSolid() && !hazards.contains(head);
+}
+
+/**
+ * @param target The location being corrected to.
+ * @param block The packed safe position for the location, or {@link #noneFound}.
+ * @return The given location if the safe position is the block of the given location, or if nothing safe was found. Otherwise, the middle of the safe position, facing the same way as the given location.
+ */
+private static @NotNull Location toLocation(@NotNull Location target, long block) {
+  if (block == noneFound || block == packBlock(target.getBlockX(), target.getBlockY(), target.getBlockZ())) return target;
+
+  return new Location(target.getWorld(), unpackX(block)+0.5, unpackY(block), unpackZ(block)+0.5, target.getYaw(), target.getPitch());
+}
+
+private static long packBlock(int x, int y, int z) {
+  return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+}
+
+private static int unpackX(long block) {
+  return (int) (block >> 38);
+}
+
+private static int unpackY(long block) {
+  return (int) (block << 52 >> 52);
+}
+
+private static int unpackZ(long block) {
+  return (int) (block << 26 >> 38);
+}
+
+private static long packChunk(int chunkX, int chunkZ) {
+  return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+}
+
+/**
+ The cached results & running searches for one world.
+ */
+private static class WorldCache {
+  /**
+   The safe position for each searched position, by the chunk of the searched position.
+   */
+  final HashMap<Long, HashMap<Long, Long>> results = new HashMap<>();
+
+  /**
+   The running searches, by the searched position.
+   */
+  final HashMap<Long, Search> searches = new HashMap<>();
+}
+
+/**
+ A search running in the background.
+ */
+private static class Search {
+  /**
+   The chunk of the searched position.
+   */
+  final long chunk;
+
+  /**
+   The chunks that the search is reading from.
+   */
+  final long[] chunks;
+
+  /**
+   Whether a block has changed in one of the read chunks since the search started.
+   */
+  boolean stale = false;
+  boolean done = false;
+  long result;
+
+  Search(long chunk, long[] chunks) {
+    this.chunk = chunk;
+    this.chunks = chunks;
+  }
+
+  /**
+   * @param chunk The given chunk.
+   * @return True if this search is reading from the given chunk.
+   */
+  boolean reads(long chunk) {
+    for (long read : chunks) {
+      if (read == chunk) return true;
+    }
+    return false;
+  }
+}
+
+}
@@ -0,0 +1,120 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ A 2d tree of the spawn locations in one world, on the x & z axes, for finding the nearest spawn in O(log n).<br>
+ The tree is stored in flat arrays, with the middle of each range being the node that splits it, so searching it doesn't allocate.
+ This should only be used from the main thread.
+ */
+public final class SpawnIndex {
+
+private final double[] xs;
+private final double[] zs;
+private final Location[] locations;
+
+//The state of the current search. These are fields rather than locals so the recursive search doesn't allocate.
+private int bestIndex;
+private double bestDistance;
+
+/**
+ Builds a tree of the given spawn locations. The given locations must all be in the same world.
+ * @param spawns The given spawn locations.
+ */
+public SpawnIndex(@NotNull List<Location> spawns) {
+  Location[] sorted = spawns.toArray(new Location[0]);
+  build(sorted, 0, sorted.length, 0);
+
+  this.locations = sorted;
+  this.xs = new double[sorted.length];
+  this.zs = new double[sorted.length];
+
+  for (int i = 0; i < sorted.length; i++) {
+    xs[i] = sorted[i].getX();
+    zs[i] = sorted[i].getZ();
+  }
+}
+
+/**
+ * @return The amount of spawns in this tree.
+ */
+public int size() {
+  return locations.length;
+}
+
+/**
+ Finds the spawn nearest to the given position, on the x & z axes.
+ * @param x The x of the given position.
+ * @param z The z of the given position.
+ * @return The nearest spawn location. This shouldn't be modified.<br>
+ * Or null if this tree is empty.
+ */
+public @Nullable Location nearest(double x, double z) {
+  if (locations.length == 0) return null;
+
+  bestIndex = -1;
+  bestDistance = Double.POSITIVE_INFINITY;
+  search(0, locations.length, 0, x, z);
+
+  return locations[bestIndex];
+}
+
+/**
+ Searches the given range of the tree for a spawn closer than the closest one found so far.
+ * @param low The start of the range, inclusive.
+ * @param high The end of the range, exclusive.
+ * @param depth The depth of the range in the tree. Even depths split on x, odd depths split on z.
+ * @param x The x to find the nearest spawn to.
+ * @param z The z to find the nearest spawn to.
+ */
+private void search(int low, int high, int depth, double x, double z) {
+  if (low >= high) return;
+
+  int middle = (low + high) >>> 1;
+
+  double dx = xs[middle] - x;
+  double dz = zs[middle] - z;
+  double distance = dx*dx + dz*dz;
+
+  if (distance < bestDistance) {
+    bestDistance = distance;
+    bestIndex = middle;
+  }
+
+  double split = depth % 2 == 0 ? x - xs[middle] : z - zs[middle];
+
+  //Searches the side the position is on first, then the other side only if it could have a closer spawn.
+  if (split < 0) {
+    search(low, middle, depth+1, x, z);
+    if (split*split < bestDistance) search(middle+1, high, depth+1, x, z);
+  } else {
+    search(middle+1, high, depth+1, x, z);
+    if (split*split < bestDistance) search(low, middle, depth+1, x, z);
+  }
+}
+
+/**
+ Orders the given range of locations into a tree, alternating between splitting on x & z.
+ * @param locations The locations to order.
+ * @param low The start of the range, inclusive.
+ * @param high The end of the range, exclusive.
+ * @param depth The depth of the range in the tree.
+ */
+private static void build(@NotNull Location[] locations, int low, int high, int depth) {
+  if (high - low <= 1) return;
+
+  Comparator<Location> axis = depth % 2 == 0 ? Comparator.comparingDouble(Location::getX) : Comparator.comparingDouble(Location::getZ);
+  Arrays.sort(locations, low, high, axis);
+
+  int middle = (low + high) >>> 1;
+  build(locations, low, middle, depth+1);
+  build(locations, middle+1, high, depth+1);
+}
+
+}
@@ -0,0 +1,255 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static me.tye.spawnfix.utils.Util.plugin;
+
+/**
+ A pool of safe random locations around the default spawn, for spreading players out when "randomSpawn.enabled" is true.<br>
+ Once the pool drops below "randomSpawn.lowWater" locations, it is refilled up to "randomSpawn.poolSize" locations in the background.
+ Each tick at most "randomSpawn.checksPerTick" random spots are checked, by taking a snapshot of their chunk & finding the surface off the main thread.<br>
+ This should only be used from the main thread.
+ */
+public class SpawnPool {
+
+/**
+ The checked locations that are ready to be used.
+ */
+private static final ArrayDeque<Location> pool = new ArrayDeque<>();
+
+/**
+ The spots whose chunks are still loading, in the order they were picked.
+ */
+private static final ArrayDeque<Location> waiting = new ArrayDeque<>();
+
+/**
+ The amount of spots that are being checked in the background.
+ */
+private static int checking = 0;
+
+/**
+ Whether the pool is being refilled. This is set once the pool drops below the low-water mark, & unset once it is full.
+ */
+private static boolean refilling = true;
+
+/**
+ Increased each time the pool is cleared, so spots that were being checked from before then aren't added.
+ */
+private static int generation = 0;
+
+/**
+ The amount of chunks that can be loaded synchronously each tick for the spots being checked. This is separate from the corrections, so neither can use up the other's chunk loads.
+ */
+private static final ChunkLoader.LoadBudget loadBudget = new ChunkLoader.LoadBudget();
+
+private static @Nullable BukkitTask task = null;
+
+/**
+ Starts the repeating task that refills the pool.
+ */
+public static void start() {
+  if (task != null) return;
+
+  task = Bukkit.getScheduler().runTaskTimer(plugin, SpawnPool::tick, 1, 1);
+}
+
+/**
+ Stops the repeating task & empties the pool.
+ */
+public static void stop() {
+  if (task != null) {
+    task.cancel();
+    task = null;
+  }
+
+  clear();
+}
+
+/**
+ Takes a random location from the pool. Locations that are no longer safe are thrown away.
+ * @return A random safe location around the default spawn.<br>
+ * Or null if "randomSpawn.enabled" is false or the pool is empty.
+ */
+public static @Nullable Location take() {
+  if (!Config.get().randomSpawnEnabled) return null;
+
+  Location location = pool.pollFirst();
+  while (location != null && !isStillSafe(location)) {
+    location = pool.pollFirst();
+  }
+
+  if (pool.size() < Config.get().randomSpawnLowWater) {
+    refilling = true;
+  }
+
+  return location;
+}
+
+/**
+ Puts a location taken from the pool back, for when the player it was taken for never spawned there.<br>
+ The location is used next, unless the pool has been cleared or filled since it was taken.
+ * @param location The location that was taken from the pool.
+ * @param takenGeneration The {@link #generation()} of the pool when the location was taken.
+ */
+public static void giveBack(@NotNull Location location, int takenGeneration) {
+  if (!Config.get().randomSpawnEnabled || takenGeneration != generation) return;
+  if (pool.size() >= Config.get().randomSpawnPoolSize) return;
+
+  pool.addFirst(location);
+}
+
+/**
+ * @return The amount of times the pool has been cleared. Locations taken before the pool was last cleared aren't put back into it.
+ */
+public static int generation() {
+  return generation;
+}
+
+/**
+ * @return The amount of locations in the pool.
+ */
+public static int size() {
+  return pool.size();
+}
+
+/**
+ Empties the pool. This should be called when the default spawn or the random spawn configs change.
+ */
+public static void clear() {
+  pool.clear();
+  waiting.clear();
+  generation++;
+  refilling = true;
+}
+
+/**
+ Checks more random spots if the pool is being refilled.<br>
+ Spots in chunks that aren't loaded yet wait for their chunk, rather than being thrown away, so the chunk loads they requested aren't wasted.
+ */
+private static void tick() {
+  ConfigSnapshot config = Config.get();
+  if (!config.randomSpawnEnabled || !refilling) return;
+
+  if (pool.size() >= config.randomSpawnPoolSize) {
+    refilling = false;
+    return;
+  }
+
+  Location center = Util.getDefaultSpawn();
+  if (center == null) return;
+
+  World world = center.getWorld();
+
+  loadBudget.reset(config.randomSpawnChecksPerTick);
+  int checks = config.randomSpawnChecksPerTick;
+
+  //The waiting spots are checked first, as their chunks were requested the longest ago.
+  for (int i = waiting.size(); i > 0 && checks > 0; i--) {
+    Location spot = waiting.pollFirst();
+
+    if (!ChunkLoader.isReady(spot, loadBudget)) {
+      waiting.addLast(spot);
+      continue;
+    }
+
+    checks--;
+    check(spot, center);
+  }
+
+  for (; checks > 0 && pool.size()+checking+waiting.size() < config.randomSpawnPoolSize; checks--) {
+    //Picks a spot evenly across the circle around the default spawn.
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double distance = config.randomSpawnRadius * Math.sqrt(random.nextDouble());
+    double angle = random.nextDouble() * Math.PI * 2;
+
+    int x = (int) Math.floor(center.getX() + Math.cos(angle) * distance);
+    int z = (int) Math.floor(center.getZ() + Math.sin(angle) * distance);
+
+    Location spot = new Location(world, x, 0, z);
+
+    if (!ChunkLoader.isReady(spot, loadBudget)) {
+      waiting.addLast(spot);
+      continue;
+    }
+
+    check(spot, center);
+  }
+}
+
+/**
+ Finds the surface of the given spot off the main thread, then adds it to the pool if it's safe.
+ * @param spot The given spot. Its chunk must be loaded.
+ * @param center The default spawn, for the rotation of the location.
+ */
+private static void check(@NotNull Location spot, @NotNull Location center) {
+  World world = spot.getWorld();
+  int x = spot.getBlockX();
+  int z = spot.getBlockZ();
+  int minY = world.getMinHeight();
+  int maxY = world.getMaxHeight();
+
+  ChunkSnapshot snapshot = world.getChunkAt(x >> 4, z >> 4).getChunkSnapshot(true, false, false);
+  int startGeneration = generation;
+  checking++;
+
+  CompletableFuture.supplyAsync(() -> findSurface(snapshot, x & 15, z & 15, minY, maxY)).whenComplete((y, throwable) -> {
+    if (!plugin.isEnabled()) return;
+
+    Bukkit.getScheduler().runTask(plugin, () -> {
+      checking--;
+
+      if (throwable != null || y == null || startGeneration != generation) return;
+      if (pool.size() >= Config.get().randomSpawnPoolSize) return;
+
+      pool.addLast(new Location(world, x+0.5, y, z+0.5, center.getYaw(), center.getPitch()));
+    });
+  });
+}
+
+/**
+ Checks if a location from the pool is still safe, as the blocks could have changed since it was checked.
+ * @param location The given location.
+ * @return True if the location is still safe, or if its chunk isn't loaded.
+ */
+private static boolean isStillSafe(@NotNull Location location) {
+  World world = location.getWorld();
+  int x = location.getBlockX();
+  int y = location.getBlockY();
+  int z = location.getBlockZ();
+
+  //Checking a spot in a chunk that isn't loaded would load it on the main thread, so these are used as they are.
+  if (!world.isChunkLoaded(x >> 4, z >> 4)) return true;
+
+  return SafeLocations.isSafe(world.getBlockAt(x, y-1, z).getType(), world.getBlockAt(x, y, z).getType(), world.getBlockAt(x, y+1, z).getType());
+}
+
+/**
+ Finds where a player can safely stand on the surface of the given column.<br>
+ This only reads from the snapshot, so it can be called off the main thread.
+ * @param snapshot The snapshot of the chunk the column is in. This must include the height map.
+ * @param x The x of the column within the chunk.
+ * @param z The z of the column within the chunk.
+ * @param minY The lowest y of the world.
+ * @param maxY The highest y of the world, exclusive.
+ * @return The y of the player's feet, or null if the surface isn't safe.
+ */
+private static @Nullable Integer findSurface(ChunkSnapshot snapshot, int x, int z, int minY, int maxY) {
+  int ground = snapshot.getHighestBlockYAt(x, z);
+  if (ground < minY || ground+2 >= maxY) return null;
+
+  if (!SafeLocations.isSafe(snapshot.getBlockType(x, ground, z), snapshot.getBlockType(x, ground+1, z), snapshot.getBlockType(x, ground+2, z))) return null;
+
+  return ground+1;
+}
+
+}
@@ -0,0 +1,298 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Stores the named spawns that players respawn at when they don't have a bed. Players respawn at the named spawn nearest to where they died.<br>
+ The spawns are stored in "spawns.yml" in the data folder. This should only be used from the main thread.
+ */
+public class SpawnRegistry {
+
+/**
+ The file the named spawns are stored in.
+ */
+private static final File spawnsFile = new File(dataFolder.toPath() + File.separator + "spawns.yml");
+
+/**
+ The characters that a spawn name can contain.
+ */
+private static final Pattern validName = Pattern.compile("[A-Za-z0-9_-]+");
+
+/**
+ How many ticks to wait after a spawn is changed before the spawns are saved, so several changes are saved together.
+ */
+private static final long saveDelay = 20*5;
+
+/**
+ The named spawns, sorted by name.
+ */
+private static final TreeMap<String, NamedSpawn> spawns = new TreeMap<>();
+
+/**
+ A tree of the spawns for each loaded world, by world uuid.
+ */
+private static final HashMap<UUID, SpawnIndex> indexes = new HashMap<>();
+
+/**
+ Whether a save of the spawns is already scheduled.
+ */
+private static boolean saveScheduled = false;
+
+/**
+ How many times the spawns have been serialised, & the number of the last serialisation that was written.<br>
+ This stops an older save from overwriting a newer one when the final save on shutdown overlaps a background save.
+ */
+private static long saves = 0;
+private static long lastWritten = 0;
+
+/**
+ Loads the named spawns from the spawns file.
+ */
+public static void load() {
+  publish(parse());
+}
+
+/**
+ Reads the named spawns from the spawns file, without replacing the current ones.<br>
+ This only reads from the spawns file, so it can be called off the main thread.
+ * @return The named spawns in the spawns file, sorted by name.
+ */
+public static @NotNull TreeMap<String, NamedSpawn> parse() {
+  TreeMap<String, NamedSpawn> parsed = new TreeMap<>();
+  if (!spawnsFile.exists()) return parsed;
+
+  HashMap<String, Object> yaml = parseAndRepairExternalYaml(spawnsFile, null);
+
+  //Groups the flattened keys, such as "hub.x", by spawn name.
+  HashMap<String, HashMap<String, String>> grouped = new HashMap<>();
+  yaml.forEach((String key, Object value) -> {
+    int separator = key.lastIndexOf('.');
+    if (separator == -1) return;
+
+    grouped.computeIfAbsent(key.substring(0, separator), name -> new HashMap<>()).put(key.substring(separator+1), String.valueOf(value));
+  });
+
+  grouped.forEach((String name, HashMap<String, String> values) -> {
+    try {
+      parsed.put(name, new NamedSpawn(name, values.get("world"),
+          Double.parseDouble(values.get("x")),
+          Double.parseDouble(values.get("y")),
+          Double.parseDouble(values.get("z")),
+          Float.parseFloat(values.get("yaw")),
+          Float.parseFloat(values.get("pitch"))
+      ));
+
+    } catch (NullPointerException | NumberFormatException e) {
+      log.warning(Lang.excepts_invalidValue.getResponse(Key.key.replaceWith(name), Key.filePath.replaceWith(spawnsFile.getAbsolutePath())));
+    }
+  });
+
+  return parsed;
+}
+
+/**
+ Replaces the current named spawns with the given ones.<br>
+ If a spawn was added or removed since {@link #saveNow()} was last called, then the given spawns are older than the current ones, so they aren't used.
+ * @param newSpawns The given spawns, as returned by {@link #parse()}.
+ */
+public static void publish(@NotNull TreeMap<String, NamedSpawn> newSpawns) {
+  if (saveScheduled) return;
+
+  spawns.clear();
+  spawns.putAll(newSpawns);
+
+  rebuildIndexes();
+}
+
+/**
+ Writes any unsaved changes to the spawns file in the background straight away, instead of waiting for the scheduled save.<br>
+ The write is queued on {@link Util#ioExecutor}, so anything queued on it afterwards reads the saved spawns.
+ */
+public static void saveNow() {
+  if (!saveScheduled) return;
+
+  saveScheduled = false;
+  byte[] content = serialise();
+  long save = ++saves;
+  ioExecutor.execute(() -> write(content, save));
+}
+
+/**
+ Writes any unsaved changes to the spawns file straight away.
+ */
+public static void close() {
+  if (!saveScheduled) return;
+
+  saveScheduled = false;
+  write(serialise(), ++saves);
+}
+
+/**
+ * @param name The given name.
+ * @return True if the given name can be used for a spawn.
+ */
+public static boolean isValidName(@NotNull String name) {
+  return validName.matcher(name).matches();
+}
+
+/**
+ * @return The names of every spawn.
+ */
+public static @NotNull Set<String> getNames() {
+  return spawns.keySet();
+}
+
+/**
+ Adds a spawn with the given name at the given location, replacing any spawn that already has the name.
+ * @param name The given name. This must be a valid name.
+ * @param location The given location. The world of this location must be loaded.
+ */
+public static void add(@NotNull String name, @NotNull Location location) {
+  spawns.put(name, new NamedSpawn(name, location.getWorld().getName(), location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch()));
+
+  rebuildIndexes();
+  scheduleSave();
+}
+
+/**
+ Removes the spawn with the given name.
+ * @param name The given name.
+ * @return True if there was a spawn with the given name.
+ */
+public static boolean remove(@NotNull String name) {
+  if (spawns.remove(name) == null) return false;
+
+  rebuildIndexes();
+  scheduleSave();
+  return true;
+}
+
+/**
+ Finds the spawn nearest to the given location, in the same world as it.
+ * @param location The given location.
+ * @return A copy of the nearest spawn location, or null if there are no spawns in the world of the given location.
+ */
+public static @Nullable Location nearest(@NotNull Location location) {
+  if (indexes.isEmpty() || !location.isWorldLoaded() || location.getWorld() == null) return null;
+
+  SpawnIndex index = indexes.get(location.getWorld().getUID());
+  if (index == null) return null;
+
+  Location nearest = index.nearest(location.getX(), location.getZ());
+  return nearest == null ? null : nearest.clone();
+}
+
+/**
+ Rebuilds the tree of spawns for each loaded world. This should be called when a world is loaded or unloaded.
+ */
+public static void rebuildIndexes() {
+  indexes.clear();
+  if (spawns.isEmpty()) return;
+
+  HashMap<UUID, ArrayList<Location>> byWorld = new HashMap<>();
+
+  for (NamedSpawn spawn : spawns.values()) {
+    World world = Bukkit.getWorld(spawn.worldName());
+    if (world == null) continue;
+
+    byWorld.computeIfAbsent(world.getUID(), uuid -> new ArrayList<>()).add(spawn.toLocation(world));
+  }
+
+  byWorld.forEach((UUID uuid, ArrayList<Location> locations) -> indexes.put(uuid, new SpawnIndex(locations)));
+}
+
+/**
+ Saves the spawns after {@link #saveDelay} ticks, unless a save is already scheduled.
+ */
+private static void scheduleSave() {
+  if (saveScheduled) return;
+  saveScheduled = true;
+
+  Bukkit.getScheduler().runTaskLater(plugin, () -> {
+    if (!saveScheduled) return;
+    saveScheduled = false;
+
+    //The spawns are copied on the main thread & written in the background.
+    byte[] content = serialise();
+    long save = ++saves;
+    ioExecutor.execute(() -> write(content, save));
+  }, saveDelay);
+}
+
+/**
+ * @return The spawns in the format of the spawns file.
+ */
+private static byte[] serialise() {
+  StringBuilder builder = new StringBuilder("#The named spawns for SpawnFix. These can be changed with \"/sf addSpawn\" & \"/sf removeSpawn\".\n");
+
+  for (NamedSpawn spawn : spawns.values()) {
+    //The names are quoted, so names such as "yes" or "007" aren't read back as booleans or numbers.
+    builder.append('\n').append(quote(spawn.name())).append(":\n")
+           .append("  world: ").append(quote(spawn.worldName())).append('\n')
+           .append("  x: ").append(spawn.x()).append('\n')
+           .append("  y: ").append(spawn.y()).append('\n')
+           .append("  z: ").append(spawn.z()).append('\n')
+           .append("  yaw: ").append(spawn.yaw()).append('\n')
+           .append("  pitch: ").append(spawn.pitch()).append('\n');
+  }
+
+  return builder.toString().getBytes(StandardCharsets.UTF_8);
+}
+
+/**
+ * @param string The given string.
+ * @return The given string as a double-quoted yaml scalar.
+ */
+private static @NotNull String quote(@NotNull String string) {
+  return "\""+string.replace("\\", "\\\\").replace("\"", "\\\"")+"\"";
+}
+
+/**
+ Writes the given content to the spawns file, unless newer content has already been written.
+ * @param content The given content.
+ * @param save The number of the serialisation that made the given content.
+ */
+private static synchronized void write(byte[] content, long save) {
+  if (save <= lastWritten) return;
+
+  try {
+    writeAtomically(spawnsFile, content);
+    lastWritten = save;
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_fileWrite.getResponse(Key.filePath.replaceWith(spawnsFile.getAbsolutePath())), e);
+  }
+}
+
+/**
+ A named spawn. The world is stored by name so spawns in worlds that aren't loaded are kept.
+ */
+public record NamedSpawn(String name, String worldName, double x, double y, double z, float yaw, float pitch) {
+
+  /**
+   * @param world The world of this spawn.
+   * @return This spawn as a location in the given world.
+   */
+  Location toLocation(@NotNull World world) {
+    return new Location(world, x, y, z, yaw, pitch);
+  }
+}
+
+}
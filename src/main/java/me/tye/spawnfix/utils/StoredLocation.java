@@ -0,0 +1,55 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ A location stored in a {@link LocationStore}. Unlike a {@link Location} this holds the uuid of the world rather than the world, so it can be read whilst the world isn't loaded.
+ * @param world The uuid of the world.
+ */
+public record StoredLocation(@NotNull UUID world, double x, double y, double z, float yaw, float pitch) {
+
+/**
+ The world uuid of a cleared location. No world has this uuid.
+ */
+private static final UUID clearedWorld = new UUID(0, 0);
+
+/**
+ * @return A location that marks the player as having no last logout location, such as after "/sf bulk reset".<br>
+ * Players with this are sent to spawn, without their last logout location being read from their player data.
+ */
+public static @NotNull StoredLocation cleared() {
+  return new StoredLocation(clearedWorld, 0, 0, 0, 0, 0);
+}
+
+/**
+ * @return True if this location marks the player as having no last logout location.
+ */
+public boolean isCleared() {
+  return world.equals(clearedWorld);
+}
+
+/**
+ * @param location The given location. The world of this location must be loaded.
+ * @return The given location as a stored location.
+ */
+public static @NotNull StoredLocation of(@NotNull Location location) {
+  return new StoredLocation(location.getWorld().getUID(), location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch());
+}
+
+/**
+ * @return This as a location, or null if the world of this location isn't loaded.
+ */
+public @Nullable Location toLocation() {
+  World loaded = Bukkit.getWorld(world);
+  if (loaded == null) return null;
+
+  return new Location(loaded, x, y, z, yaw, pitch);
+}
+
+}
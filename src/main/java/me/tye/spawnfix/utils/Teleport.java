@@ -1,54 +1,290 @@
 package me.tye.spawnfix.utils;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
-import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
 import java.util.UUID;
 
 import static me.tye.spawnfix.utils.Util.plugin;
 
-public class Teleport implements Runnable{
+public class Teleport {
 
-public static final HashMap<UUID,BukkitTask> runningTasks = new HashMap<>();
+/**
+ The most ticks a correction waits for the chunk of its location to load, or for a safe location to be found, before it gives up.
+ */
+private static final long maxWaitTicks = 20*30;
+
+private final UUID uuid;
+private Location location;
+private final boolean priority;
+
+private int timesRun = 0;
+private final int retryLimit;
+
+private final boolean verify;
+private final double tolerance;
+private final float rotationTolerance;
+private final int requiredStableChecks;
+private final double backoff;
+private final boolean safeCheck;
+
+/**
+ Whether the location has been checked to be safe, or replaced with a safe location nearby.
+ */
+private boolean safeChecked = false;
 
-private final Player player;
-private final Location location;
+/**
+ Whether this correction has been cancelled & should be removed from the correction engine.
+ */
+private boolean cancelled = false;
 
-private int timesTeleported = 1;
-private final int retryLimit = Config.teleport_times.getIntegerConfig();
+/**
+ Whether the player was teleported the last time this correction was run.
+ */
+private boolean teleported = false;
+
+/**
+ The amount of times this correction has teleported the player.
+ */
+private int teleportCount = 0;
+
+/**
+ The amount of checks in a row that the player was found at the location.
+ */
+private int stableChecks = 0;
+
+/**
+ The amount of ticks to wait before the next retry. This is multiplied by "teleport.backoff" after each retry.
+ */
+private double interval;
+
+/**
+ The tick of the correction engine that this teleport should next be run on.
+ */
+private long nextDue;
+
+/**
+ The tick of the correction engine that this correction started waiting for its location on, or -1 if it isn't waiting.
+ */
+private long waitingSince = -1;
 
 /**
- A runnable object that teleports the given player to the given location the amount of times specified by "teleport.times" in the config.
- * @param player The given player.
+ A pending correction that teleports the given player to the given location the amount of times specified by "teleport.times" in the config.<br>
+ This object is run by the {@link CorrectionEngine}, it shouldn't be run on its own.
+ * @param uuid The uuid of the given player.
  * @param location The given location.
+ * @param firstDue The tick of the correction engine to first teleport the player on.
+ * @param priority Whether this correction should be run before the ones without priority when there are too many to run on one tick.
  */
-public Teleport(@NonNull Player player, @NonNull Location location) {
-  this.player = player;
+public Teleport(@NotNull UUID uuid, @NotNull Location location, long firstDue, boolean priority) {
+  this(uuid, location, firstDue, priority, Config.get().teleportTimes);
+}
+
+/**
+ A pending correction that teleports the given player to the given location the given amount of times.<br>
+ This object is run by the {@link CorrectionEngine}, it shouldn't be run on its own.
+ * @param uuid The uuid of the given player.
+ * @param location The given location.
+ * @param firstDue The tick of the correction engine to first teleport the player on.
+ * @param priority Whether this correction should be run before the ones without priority when there are too many to run on one tick.
+ * @param retryLimit The amount of times to teleport the player.
+ */
+public Teleport(@NotNull UUID uuid, @NotNull Location location, long firstDue, boolean priority, int retryLimit) {
+  this(uuid, location, firstDue, priority, retryLimit, Config.get().teleportVerify);
+}
+
+/**
+ A pending correction that teleports the given player to the given location the given amount of times.<br>
+ This object is run by the {@link CorrectionEngine}, it shouldn't be run on its own.
+ * @param uuid The uuid of the given player.
+ * @param location The given location.
+ * @param firstDue The tick of the correction engine to first teleport the player on.
+ * @param priority Whether this correction should be run before the ones without priority when there are too many to run on one tick.
+ * @param retryLimit The amount of times to teleport the player.
+ * @param verify If true, the player is only teleported if they aren't already at the location. This overrides "teleport.verify".
+ */
+public Teleport(@NotNull UUID uuid, @NotNull Location location, long firstDue, boolean priority, int retryLimit, boolean verify) {
+  this.uuid = uuid;
   this.location = location;
+  this.nextDue = firstDue;
+  this.priority = priority;
+  this.retryLimit = retryLimit;
+
+  ConfigSnapshot config = Config.get();
+  this.verify = verify;
+  this.tolerance = config.teleportTolerance;
+  this.rotationTolerance = config.teleportRotationTolerance;
+  this.requiredStableChecks = config.teleportStableChecks;
+  this.backoff = config.teleportBackoff;
+  this.interval = config.teleportRetryInterval;
+  this.safeCheck = config.teleportSafeCheck;
+}
+
+/**
+ * @return The location the player is being corrected to.
+ */
+public @NotNull Location getLocation() {
+  return location;
 }
 
-@Override
-public void run() {
-  if (timesTeleported > retryLimit) {
-    runningTasks.get(player.getUniqueId()).cancel();
-    return;
+/**
+ * @return True if this correction has been run at least once.
+ */
+public boolean hasStarted() {
+  return timesRun > 0;
+}
+
+/**
+ Marks this correction to be removed from the correction engine, without running it again.
+ */
+public void cancel() {
+  cancelled = true;
+}
+
+/**
+ * @return True if this correction has been cancelled.
+ */
+public boolean isCancelled() {
+  return cancelled;
+}
+
+/**
+ * @return Whether this correction should be run before the ones without priority.
+ */
+public boolean hasPriority() {
+  return priority;
+}
+
+/**
+ * @return The amount of times this correction has teleported the player.
+ */
+public int getTeleportCount() {
+  return teleportCount;
+}
+
+/**
+ * @return Whether the player was teleported the last time this correction was run.
+ */
+public boolean hasTeleported() {
+  return teleported;
+}
+
+/**
+ * @param tick The current tick of the correction engine.
+ * @return True if this teleport should be run on the given tick.
+ */
+public boolean isDue(long tick) {
+  return tick >= nextDue;
+}
+
+/**
+ Teleports the player to the location once.<br>
+ If "teleport.verify" is true, the player is only teleported if they aren't already at the location.<br>
+ If the chunk of the location isn't loaded yet, then the teleport is delayed until it is, for at most {@link #maxWaitTicks} ticks.<br>
+ If "teleport.safeCheck" is true, the location is first replaced with a safe location nearby if it isn't safe, which delays the teleport until the search has finished.
+ * @param tick The current tick of the correction engine.
+ * @return True if this correction has finished & should be removed from the correction engine.
+ */
+public boolean run(long tick) {
+  teleported = false;
+  Player player = Bukkit.getPlayer(uuid);
+
+  if (player == null) {
+    plugin.getLogger().warning(Lang.teleport_noPlayer.getResponse());
+    return true;
   }
 
-  if (location == null ) {
+  if (!location.isWorldLoaded()) {
     plugin.getLogger().warning(Lang.teleport_noLocation.getResponse());
-    return;
+    return true;
   }
 
-  if (player == null) {
-    plugin.getLogger().warning(Lang.teleport_noPlayer.getResponse());
-    return;
+  //The location is only checked once, as the result is cached until a block nearby changes.
+  if (safeCheck && !safeChecked) {
+    if (!ChunkLoader.isReady(location)) return waitOrGiveUp(player, tick);
+
+    Location safe = SafeLocations.find(location);
+    if (safe == null) return waitOrGiveUp(player, tick);
+
+    location = safe;
+    safeChecked = true;
   }
 
-  player.teleport(location);
-  timesTeleported++;
+  if (verify && isAtLocation(player.getLocation())) {
+    stableChecks++;
+
+    //finishes early if the player has stayed at the location for long enough.
+    if (requiredStableChecks > 0 && stableChecks >= requiredStableChecks) {
+      return true;
+    }
+
+  } else {
+    //waits for the chunk to load before teleporting, so the main thread isn't blocked by loading it.
+    if (!ChunkLoader.isReady(location)) return waitOrGiveUp(player, tick);
+
+    stableChecks = 0;
+    player.teleport(location);
+    teleported = true;
+    teleportCount++;
+  }
+
+  waitingSince = -1;
+  timesRun++;
+  if (timesRun >= retryLimit) {
+    return true;
+  }
+
+  nextDue = tick + Math.max(1, Math.round(interval));
+  interval *= backoff;
+  return false;
+}
+
+/**
+ Runs this correction again on the next tick, unless it has already waited for its location for {@link #maxWaitTicks} ticks.
+ * @param player The player being corrected.
+ * @param tick The current tick of the correction engine.
+ * @return True if this correction has given up & should be removed from the correction engine.
+ */
+private boolean waitOrGiveUp(@NotNull Player player, long tick) {
+  if (waitingSince == -1) waitingSince = tick;
+
+  if (tick - waitingSince >= maxWaitTicks) {
+    plugin.getLogger().warning(Lang.teleport_timedOut.getResponse(Key.name.replaceWith(player.getName()), Key.worldName.replaceWith(location.getWorld().getName())));
+    return true;
+  }
+
+  nextDue = tick+1;
+  return false;
+}
+
+/**
+ Checks if the given location is within "teleport.tolerance" blocks & "teleport.rotationTolerance" degrees of the location to correct to.
+ * @param current The given location.
+ * @return True if the given location is close enough to the location to correct to.
+ */
+private boolean isAtLocation(@NotNull Location current) {
+  if (current.getWorld() == null || !current.getWorld().equals(location.getWorld())) {
+    return false;
+  }
+
+  if (current.distanceSquared(location) > tolerance*tolerance) {
+    return false;
+  }
+
+  return angleBetween(current.getYaw(), location.getYaw()) <= rotationTolerance
+      && angleBetween(current.getPitch(), location.getPitch()) <= rotationTolerance;
+}
+
+/**
+ * @param first The first angle in degrees.
+ * @param second The second angle in degrees.
+ * @return The smallest difference between the two angles in degrees.
+ */
+private static float angleBetween(float first, float second) {
+  float difference = Math.abs(first - second) % 360;
+  return difference > 180 ? 360 - difference : difference;
 }
 
 }
@@ -0,0 +1,138 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ A lang response split into its literal text & its "{key}" placeholders, so it can be filled in without any regex.
+ */
+public final class Template {
+
+/**
+ The unmodified response.
+ */
+private final String raw;
+
+/**
+ The literal text between each placeholder. There is always one more literal than there are placeholders.
+ */
+private final String[] literals;
+
+/**
+ The placeholders, in the order they appear in the response.
+ */
+private final Key[] placeholders;
+
+private Template(@NotNull String raw, @NotNull String[] literals, @NotNull Key[] placeholders) {
+  this.raw = raw;
+  this.literals = literals;
+  this.placeholders = placeholders;
+}
+
+/**
+ Splits the given response into its literal text & placeholders.<br>
+ Any "{...}" that isn't a valid {@link Key} is kept as literal text.
+ * @param response The given response.
+ * @return The compiled template.
+ */
+public static @NotNull Template compile(@NotNull String response) {
+  ArrayList<String> literals = new ArrayList<>();
+  ArrayList<Key> placeholders = new ArrayList<>();
+
+  StringBuilder literal = new StringBuilder();
+  int index = 0;
+
+  while (index < response.length()) {
+    int open = response.indexOf('{', index);
+    int close = open == -1 ? -1 : response.indexOf('}', open);
+
+    if (close == -1) {
+      literal.append(response, index, response.length());
+      break;
+    }
+
+    Key key = findKey(response.substring(open+1, close));
+
+    //Text that isn't a valid key is kept as it is.
+    if (key == null) {
+      literal.append(response, index, open+1);
+      index = open+1;
+      continue;
+    }
+
+    literal.append(response, index, open);
+    literals.add(literal.toString());
+    placeholders.add(key);
+
+    literal.setLength(0);
+    index = close+1;
+  }
+
+  literals.add(literal.toString());
+
+  return new Template(response, literals.toArray(new String[0]), placeholders.toArray(new Key[0]));
+}
+
+/**
+ Fills in the placeholders with the given keys. Any placeholders without a given key are left as they are.
+ * @param keys The keys & the strings to fill the placeholders in with.
+ * @return The filled in response.
+ */
+public @NotNull String render(@NotNull Key.Arg... keys) {
+  if (placeholders.length == 0) return raw;
+
+  StringBuilder response = new StringBuilder(raw.length() + 32);
+  response.append(literals[0]);
+
+  for (int i = 0; i < placeholders.length; i++) {
+    Key placeholder = placeholders[i];
+    Key.Arg arg = find(keys, placeholder);
+
+    if (arg != null) {
+      response.append(arg.value());
+    } else {
+      response.append('{').append(placeholder).append('}');
+    }
+
+    response.append(literals[i+1]);
+  }
+
+  return response.toString();
+}
+
+/**
+ * @return The unmodified response.
+ */
+@Override
+public @NotNull String toString() {
+  return raw;
+}
+
+/**
+ * @param name The name of the key.
+ * @return The key with the given name, or null if there isn't one.
+ */
+private static Key findKey(@NotNull String name) {
+  for (Key key : Key.values()) {
+    if (key.name().equals(name)) return key;
+  }
+
+  return null;
+}
+
+/**
+ * @param keys The keys to search through.
+ * @param key The key to find.
+ * @return The last of the given keys that replaces the given key, or null if there isn't one.
+ */
+private static @Nullable Key.Arg find(@NotNull Key.Arg[] keys, @NotNull Key key) {
+  for (int i = keys.length-1; i >= 0; i--) {
+    if (keys[i].key() == key) return keys[i];
+  }
+
+  return null;
+}
+
+}
@@ -1,18 +1,24 @@
 package me.tye.spawnfix.utils;
 
-import me.tye.spawnfix.SpawnFix;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,43 +26,99 @@ import java.util.logging.Logger;
 public class Util {
 
 /**
- This plugin.
+ This plugin. This is set by {@link #init(Plugin)}.
  */
-public static final JavaPlugin plugin = JavaPlugin.getPlugin(SpawnFix.class);
+public static Plugin plugin;
 
 
 /**
  The data folder.
  */
-public static final File dataFolder = plugin.getDataFolder();
+public static File dataFolder;
 
 /**
  The config file for this plugin.
  */
-public static final File configFile = new File(dataFolder.toPath() + File.separator + "config.yml");
+public static File configFile;
 
 /**
  The lang folder for this plugin.
  */
-public static File langFolder = new File(dataFolder.toPath() + File.separator + "langFiles");
+public static File langFolder;
 
 /**
  The logger for this plugin.
  */
-public static final Logger log = plugin.getLogger();
+public static Logger log;
 
+/**
+ Runs file reads & writes in the background, one at a time & in the order they were submitted.
+ */
+public static final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(runnable -> {
+  Thread thread = new Thread(runnable, "SpawnFix-IO");
+  thread.setDaemon(true);
+  return thread;
+});
+
+
+/**
+ The resolved default spawn location, or null if its world isn't loaded.
+ */
+private static @Nullable Location defaultSpawn = null;
 
 /**
- * @return The default spawn location as set in the config.yml of this plugin.
+ The configs that the default spawn location was resolved from, or null if it needs to be resolved again.
  */
-public static Location getDefaultSpawn() {
-  return new Location(Bukkit.getWorld(Config.default_worldName.getStringConfig()),
-      Config.default_x.getDoubleConfig(),
-      Config.default_y.getDoubleConfig(),
-      Config.default_z.getDoubleConfig(),
-      Config.default_yaw.getFloatConfig(),
-      Config.default_pitch.getFloatConfig()
-  );
+private static @Nullable ConfigSnapshot defaultSpawnConfig = null;
+
+/**
+ Sets the plugin that the files & logger of SpawnFix are taken from. This must be called before anything else in SpawnFix is used, as the other classes find their files from these when they're first loaded.<br>
+ The plugin is given rather than looked up, so SpawnFix can also be run on a fake server without being loaded as a plugin.
+ * @param owner The given plugin.
+ */
+public static void init(@NotNull Plugin owner) {
+  plugin = owner;
+  dataFolder = owner.getDataFolder();
+  configFile = new File(dataFolder.toPath() + File.separator + "config.yml");
+  langFolder = new File(dataFolder.toPath() + File.separator + "langFiles");
+  log = owner.getLogger();
+}
+
+/**
+ * @return A copy of the default spawn location as set in the config.yml of this plugin.<br>
+ * Or null if the world of the default spawn location isn't loaded.
+ */
+public static @Nullable Location getDefaultSpawn() {
+  ConfigSnapshot config = Config.get();
+
+  //The location is only resolved again if the configs have been reloaded or the world has been loaded / unloaded.
+  if (defaultSpawnConfig != config) {
+    World world = Bukkit.getWorld(config.defaultWorldName);
+
+    if (world == null) {
+      defaultSpawn = null;
+      log.warning(Lang.excepts_noWorld.getResponse(Key.worldName.replaceWith(config.defaultWorldName)));
+    } else {
+      defaultSpawn = new Location(world,
+          config.defaultX,
+          config.defaultY,
+          config.defaultZ,
+          config.defaultYaw,
+          config.defaultPitch
+      );
+    }
+
+    defaultSpawnConfig = config;
+  }
+
+  return defaultSpawn == null ? null : defaultSpawn.clone();
+}
+
+/**
+ Makes the default spawn location be resolved again the next time it is used.
+ */
+public static void invalidateDefaultSpawn() {
+  defaultSpawnConfig = null;
 }
 
 
@@ -151,7 +213,7 @@ public static void createFile(@NotNull File file, @Nullable InputStream resource
  * @param yamlInputStream The given inputStream to a Yaml resource.
  * @return The parsed values in the format key: "test1.log" value: "works!"<br>
  * Or an empty hashMap if the given inputStream is null.
- * @throws IOException If the data couldn't be read from the given inputStream.
+ * @throws IOException If the data couldn't be read from the given inputStream, or if it isn't valid Yaml.
  */
 private static @NotNull HashMap<String, Object> parseYaml(@Nullable InputStream yamlInputStream) throws IOException {
   if (yamlInputStream == null) return new HashMap<>();
@@ -160,7 +222,19 @@ private static @NotNull HashMap<String, Object> parseYaml(@Nullable InputStream
 
   String resourceContent = new String(resourceBytes, Charset.defaultCharset());
 
-  return getKeysRecursive(new Yaml().load(resourceContent));
+  Object loaded;
+  try {
+    loaded = new Yaml().load(resourceContent);
+  } catch (YAMLException e) {
+    throw new IOException(e);
+  }
+
+  //An empty file is loaded as null, but a file that isn't made of keys can't be used.
+  if (loaded != null && !(loaded instanceof Map<?,?>)) {
+    throw new IOException("The Yaml data isn't a map of keys.");
+  }
+
+  return getKeysRecursive((Map<?,?>) loaded);
 }
 
 /**
@@ -181,6 +255,22 @@ public static @NotNull HashMap<String, Object> parseInternalYaml(@NotNull String
 }
 
 
+/**
+ Parses the given external file into a hashMap, without changing the file.<br>
+ This is used when the file could still be being written, such as when it has just been changed, so the file is never repaired.
+ * @param externalFile The external file to parse.
+ * @return The key-value pairs from the external file, or null if the file couldn't be read or isn't valid Yaml.
+ */
+public static @Nullable HashMap<String, Object> parseExternalYaml(@NotNull File externalFile) {
+  try (InputStream externalInputStream = new FileInputStream(externalFile)) {
+    return parseYaml(externalInputStream);
+
+  } catch (IOException e) {
+    log.log(Level.WARNING, Lang.excepts_parseYaml.getResponse(Key.filePath.replaceWith(externalFile.getAbsolutePath())), e);
+    return null;
+  }
+}
+
 /**
  Parses the given external file into a hashMap. If the internal file contained keys that the external file didn't then the key-value pare is added to the external file.
  * @param externalFile The external file to parse.
@@ -281,138 +371,49 @@ private static String preserveEscapedQuotes(Object value) {
 }
 
 /**
- Writes the new value to the key in the specified external yaml file.
- * @param key The key to replace the value of.
- * @param value The new string to overwrite the old value with.
- * @param externalYaml The external yaml to perform this operation on.
- * @throws IOException If there was an error reading or writing data to the Yaml file.
+ Writes the given bytes to the given file. The bytes are written to a temporary file first, which then replaces the given file.<br>
+ This means that the given file is never left half written.
+ * @param file The given file.
+ * @param bytes The given bytes.
+ * @throws IOException If the bytes couldn't be written or the given file couldn't be replaced.
  */
-public static void writeYamlData(@NotNull String key, @NotNull String value, @NotNull File externalYaml) throws IOException {
-  String fileContent;
+public static void writeAtomically(@NotNull File file, byte[] bytes) throws IOException {
+  Path target = file.toPath();
+  Path temp = target.resolveSibling(file.getName() + ".tmp");
 
-  //Reads the content from the file.
-  try (FileInputStream externalYamlInputStream = new FileInputStream(externalYaml)) {
-    fileContent = new String(externalYamlInputStream.readAllBytes());
-  }
+  Files.write(temp, bytes);
 
-  //Ensures that every key ends with ":".
-  //This avoids false matches where one key contains the starting chars of another.
-  String[] keys = key.split("\\.");
-  for (int i = 0; i < keys.length; i++) {
-    String k = keys[i];
-
-    if (k.endsWith(":")) continue;
-
-    k+=":";
-    keys[i] = k;
-  }
-
-
-  Integer valueStartPosition = findKeyPosition(keys, fileContent);
-  if (valueStartPosition == null) throw new IOException("Unable to find "+key+" in external Yaml file.");
-
-  int valueLineEnd = valueStartPosition;
-  //Finds the index of the end of the line that the key is on.
-  while (fileContent.charAt(valueLineEnd) != '\n') {
-    valueLineEnd++;
-  }
-
-  String firstPart = fileContent.substring(0, valueStartPosition);
-  String secondPart = fileContent.substring(valueLineEnd, fileContent.length()-1);
-
-  String newFileContent = firstPart.concat(value).concat(secondPart);
-
-  try (FileWriter externalYamlWriter = new FileWriter(externalYaml)) {
-    externalYamlWriter.write(newFileContent);
+  try {
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  } catch (AtomicMoveNotSupportedException e) {
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
   }
 }
 
 /**
- Finds the given key index in the given file content split on each new line.<br>
- The key should be given in the format "example.key1".
- * @param keys The given keys.
- * @param fileContent The given file content.
- * @return The index of the char a space after the end of the last key.<br>
- * Example: "key1:  !" the char index that the '!' is on.<br>
- * Or null if the key couldn't be found.
+ Writes the new value to the key in the specified external yaml file.
+ * @param key The key to replace the value of.
+ * @param value The new string to overwrite the old value with.
+ * @param externalYaml The external yaml to perform this operation on.
+ * @throws IOException If there was an error reading or writing data to the Yaml file.
  */
-private static @Nullable Integer findKeyPosition(@NotNull String[] keys, @NotNull String fileContent) {
-
-  //Iterates over each line in the file content.
-  String[] split = fileContent.split("\n");
-
-  for (int keyLine = 0, splitLength = split.length; keyLine < splitLength; keyLine++) {
-    String strippedLine = split[keyLine].stripLeading();
-
-    //if it doesn't start with the key value then continue
-    if (!strippedLine.startsWith(keys[0])) {
-      continue;
-    }
-
-    return findKeyPosition(keys, keyLine+1, 1, fileContent);
-
-  }
-
-  return null;
+public static void writeYamlData(@NotNull String key, @NotNull String value, @NotNull File externalYaml) throws IOException {
+  writeYamlData(Map.of(key, value), externalYaml);
 }
 
 /**
- Gets the index for the line of the last sub-key given in the given fileContent.<br>
- This method executes recursively.
- * @param keys The keys to find in the file.
- * @param startLine The index of the line to start the search from.
- * @param keyIndex The index of the sub-key that is searched for.
- * @param fileContent The content of the file to search through.
- * @return The index of the char a space after the end of the last key.<br>
- * Example: "key1:  !" the char index that the '!' is on.<br>
- * Or null if the key couldn't be found.
+ Writes the new values to the keys in the specified external yaml file, in a single pass over the file.<br>
+ The file is replaced atomically, so it is never left half written. If any of the keys can't be found then the file isn't changed.
+ * @param edits The keys, in the format "example.key1", mapped to the new strings to overwrite their old values with.
+ * @param externalYaml The external yaml to perform this operation on.
+ * @throws IOException If there was an error reading or writing data to the Yaml file, or if any of the keys couldn't be found.
  */
-private static @Nullable Integer findKeyPosition(@NotNull String[] keys, int startLine, int keyIndex, @NotNull String fileContent) {
-  //Iterates over each line in the file content.
-  String[] split = fileContent.split("\n");
-
-  for (int lineIndex = startLine, splitLength = split.length; lineIndex < splitLength; lineIndex++) {
-
-    String line = split[lineIndex];
-
-    //returns null if the key doesn't exist as a sub-key of the base key.
-    if (!(line.startsWith(" ") || line.startsWith("\t"))) {
-      return null;
-    }
-
-    String strippedLine = line.stripLeading();
-
-    //if it doesn't start with the key value then continue
-    if (!strippedLine.startsWith(keys[keyIndex])) {
-      continue;
-    }
-
-    keyIndex++;
-
-    //returns the char position that the key ends on if it is the last key in the sequence.
-    if (keyIndex == keys.length) {
-
-      int currentLinePosition = 0;
-      //Gets the char position of the current line within the string.
-      for (int i = 0; i < lineIndex; i++) {
-        currentLinePosition+=split[i].length()+1;
-      }
-
-      //Finds the char position a space after the key ends.
-      for (int i = currentLinePosition; i < fileContent.length(); i++) {
-        char character = fileContent.charAt(i);
+public static void writeYamlData(@NotNull Map<String,String> edits, @NotNull File externalYaml) throws IOException {
+  String fileContent = new String(Files.readAllBytes(externalYaml.toPath()), Charset.defaultCharset());
 
-        if (character != ':') continue;
-
-        return i+2;
-
-      }
-    }
-
-    return findKeyPosition(keys, startLine, keyIndex, fileContent);
-  }
+  String newFileContent = YamlEdits.replaceValues(edits, fileContent);
 
-  return null;
+  writeAtomically(externalYaml, newFileContent.getBytes(Charset.defaultCharset()));
 }
 
 }
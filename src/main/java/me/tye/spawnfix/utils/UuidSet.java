@@ -0,0 +1,129 @@
+package me.tye.spawnfix.utils;
+
+/**
+ A set of uuids stored as pairs of longs, so they can be looked up without creating any objects.<br>
+ The set is a hash table using open addressing with linear probing, & is doubled in size once it is half full.
+ This isn't thread safe.
+ */
+public class UuidSet {
+
+private static final int initialCapacity = 64;
+
+/**
+ The uuids, stored as most significant bits followed by least significant bits. Empty slots are all zeros.
+ */
+private long[] table;
+private int capacity;
+private int size = 0;
+
+/**
+ Whether the uuid with all zero bits is in the set, as it can't be stored in the table.
+ */
+private boolean containsZero = false;
+
+/**
+ Creates an empty set with room for at least the given amount of uuids before it has to grow.
+ * @param expected The given amount.
+ */
+public UuidSet(int expected) {
+  capacity = initialCapacity;
+  while (capacity/2 < expected) capacity *= 2;
+
+  table = new long[capacity*2];
+}
+
+/**
+ * @param msb The most significant bits of the given uuid.
+ * @param lsb The least significant bits of the given uuid.
+ * @return True if the given uuid is in the set.
+ */
+public boolean contains(long msb, long lsb) {
+  if (msb == 0 && lsb == 0) return containsZero;
+
+  return find(msb, lsb) >= 0;
+}
+
+/**
+ Adds the given uuid to the set.
+ * @param msb The most significant bits of the given uuid.
+ * @param lsb The least significant bits of the given uuid.
+ * @return True if the given uuid wasn't already in the set.
+ */
+public boolean add(long msb, long lsb) {
+  if (msb == 0 && lsb == 0) {
+    boolean added = !containsZero;
+    containsZero = true;
+    return added;
+  }
+
+  int slot = find(msb, lsb);
+  if (slot >= 0) return false;
+
+  if (size+1 > capacity/2) {
+    grow();
+    slot = find(msb, lsb);
+  }
+
+  slot = -slot-1;
+  table[slot*2] = msb;
+  table[slot*2+1] = lsb;
+  size++;
+  return true;
+}
+
+/**
+ * @return The amount of uuids in the set.
+ */
+public int size() {
+  return containsZero ? size+1 : size;
+}
+
+/**
+ Finds the slot of the given uuid.
+ * @return The slot of the given uuid. Or if the uuid isn't in the set, -(the empty slot it would be stored in)-1.
+ */
+private int find(long msb, long lsb) {
+  int mask = capacity-1;
+
+  //The table is never more than half full, so there is always an empty slot to stop at.
+  for (int slot = hash(msb, lsb) & mask; ; slot = (slot+1) & mask) {
+    long slotMsb = table[slot*2];
+    long slotLsb = table[slot*2+1];
+
+    if (slotMsb == 0 && slotLsb == 0) return -slot-1;
+    if (slotMsb == msb && slotLsb == lsb) return slot;
+  }
+}
+
+/**
+ Doubles the capacity of the table & inserts every uuid again.
+ */
+private void grow() {
+  long[] old = table;
+
+  capacity *= 2;
+  table = new long[capacity*2];
+
+  for (int i = 0; i < old.length; i += 2) {
+    if (old[i] == 0 && old[i+1] == 0) continue;
+
+    int slot = -find(old[i], old[i+1])-1;
+    table[slot*2] = old[i];
+    table[slot*2+1] = old[i+1];
+  }
+}
+
+/**
+ * @param msb The most significant bits of a uuid.
+ * @param lsb The least significant bits of a uuid.
+ * @return The hash of the uuid, before it is masked to the capacity.
+ */
+private static int hash(long msb, long lsb) {
+  long hash = msb ^ lsb;
+  hash ^= hash >>> 33;
+  hash *= 0xFF51AFD7ED558CCDL;
+  hash ^= hash >>> 33;
+  return (int) hash;
+}
+
+}
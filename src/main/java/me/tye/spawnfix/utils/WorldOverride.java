@@ -0,0 +1,142 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static me.tye.spawnfix.utils.Util.log;
+
+/**
+ The configs from the "worlds" section of the config.yml, which override the global configs for players in one world.<br>
+ Any values that aren't set use the global configs. Like {@link ConfigSnapshot} these never change once they have been parsed.
+ */
+public final class WorldOverride {
+
+public final String worldName;
+
+/**
+ True if this override has a spawn location. If false the spawn values are all 0.
+ */
+public final boolean hasSpawn;
+public final double x;
+public final double y;
+public final double z;
+public final float yaw;
+public final float pitch;
+
+public final @Nullable Config.Occurrence login;
+public final @Nullable Config.Occurrence onSpawn;
+
+private WorldOverride(@NotNull String worldName, boolean hasSpawn, double x, double y, double z, float yaw, float pitch, @Nullable Config.Occurrence login, @Nullable Config.Occurrence onSpawn) {
+  this.worldName = worldName;
+  this.hasSpawn = hasSpawn;
+  this.x = x;
+  this.y = y;
+  this.z = z;
+  this.yaw = yaw;
+  this.pitch = pitch;
+  this.login = login;
+  this.onSpawn = onSpawn;
+}
+
+/**
+ Parses the overrides for each world from the given keys.
+ * @param keys The keys from the "worlds" section & their values, such as "worlds.world_nether.x".
+ * @param file The file the keys were parsed from. This is only used for logging.
+ * @param strict If true, then null is returned if any of the keys have an invalid value. If false, the invalid keys are ignored.
+ * @return The overrides by world name, or null if strict is true & any of the keys have an invalid value.
+ */
+static @Nullable Map<String, WorldOverride> parseAll(@NotNull Map<String, Object> keys, @NotNull File file, boolean strict) {
+  //Groups the keys by world name. Only the last part of the key is the value name, as world names can contain dots.
+  HashMap<String, HashMap<String, String>> grouped = new HashMap<>();
+
+  keys.forEach((String key, Object value) -> {
+    int separator = key.lastIndexOf('.');
+    if (separator <= "worlds.".length()) {
+      log.warning(Lang.excepts_invalidKey.getResponse(Key.key.replaceWith(key), Key.filePath.replaceWith(file.getAbsolutePath())));
+      return;
+    }
+
+    grouped.computeIfAbsent(key.substring("worlds.".length(), separator), name -> new HashMap<>()).put(key.substring(separator+1), String.valueOf(value));
+  });
+
+  HashMap<String, WorldOverride> overrides = new HashMap<>();
+
+  for (Map.Entry<String, HashMap<String, String>> entry : grouped.entrySet()) {
+    WorldOverride override = parse(entry.getKey(), entry.getValue(), file);
+
+    if (override == null) {
+      if (strict) return null;
+      continue;
+    }
+
+    overrides.put(entry.getKey(), override);
+  }
+
+  return Collections.unmodifiableMap(overrides);
+}
+
+/**
+ Parses the override for one world.
+ * @param worldName The name of the world.
+ * @param values The values for the world by name, such as "x".
+ * @param file The file the values were parsed from. This is only used for logging.
+ * @return The parsed override, or null if any of the values are invalid.
+ */
+private static @Nullable WorldOverride parse(@NotNull String worldName, @NotNull Map<String, String> values, @NotNull File file) {
+  String path = "worlds."+worldName+".";
+
+  for (String name : values.keySet()) {
+    switch (name) {
+    case "x", "y", "z", "yaw", "pitch", "login", "onSpawn" -> {}
+    default -> log.warning(Lang.excepts_invalidKey.getResponse(Key.key.replaceWith(path+name), Key.filePath.replaceWith(file.getAbsolutePath())));
+    }
+  }
+
+  //The spawn location is only overridden if all of x, y & z are set.
+  boolean hasSpawn = values.containsKey("x") && values.containsKey("y") && values.containsKey("z");
+
+  if (!hasSpawn) {
+    for (String name : new String[] {"x", "y", "z"}) {
+      if (!values.containsKey(name) && (values.containsKey("x") || values.containsKey("y") || values.containsKey("z"))) {
+        log.warning(Lang.excepts_missingKey.getResponse(Key.key.replaceWith(path+name), Key.filePath.replaceWith(file.getAbsolutePath())));
+      }
+    }
+  }
+
+  String current = null;
+  try {
+    double x = 0, y = 0, z = 0;
+    float yaw = 0, pitch = 0;
+
+    if (hasSpawn) {
+      current = "x";
+      x = Double.parseDouble(values.get(current));
+      current = "y";
+      y = Double.parseDouble(values.get(current));
+      current = "z";
+      z = Double.parseDouble(values.get(current));
+      current = "yaw";
+      yaw = Float.parseFloat(values.getOrDefault(current, "0"));
+      current = "pitch";
+      pitch = Float.parseFloat(values.getOrDefault(current, "0"));
+    }
+
+    current = "login";
+    Config.Occurrence login = values.containsKey(current) ? Config.Occurrence.valueOf(values.get(current).toUpperCase()) : null;
+    current = "onSpawn";
+    Config.Occurrence onSpawn = values.containsKey(current) ? Config.Occurrence.valueOf(values.get(current).toUpperCase()) : null;
+
+    return new WorldOverride(worldName, hasSpawn, x, y, z, yaw, pitch, login, onSpawn);
+
+  } catch (IllegalArgumentException e) {
+    log.warning(Lang.excepts_invalidValue.getResponse(Key.key.replaceWith(path+current), Key.value.replaceWith(values.get(current)), Key.filePath.replaceWith(file.getAbsolutePath())));
+    return null;
+  }
+}
+
+}
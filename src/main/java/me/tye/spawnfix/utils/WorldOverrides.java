@@ -0,0 +1,122 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ Looks up the configs for players in a world, using the overrides from the "worlds" section of the config.yml if the world has one.<br>
+ The overrides are resolved into a map by world uuid each time the configs are reloaded or a world is loaded / unloaded, so each lookup is a single map get.
+ This should only be used from the main thread.
+ */
+public class WorldOverrides {
+
+/**
+ The resolved overrides for each loaded world that has one, by world uuid.
+ */
+private static final HashMap<UUID, Resolved> resolved = new HashMap<>();
+
+/**
+ The configs that the overrides were resolved from, or null if they need to be resolved again.
+ */
+private static @Nullable ConfigSnapshot resolvedConfig = null;
+
+/**
+ * @param world The given world.
+ * @return A copy of the spawn location for the given world.<br>
+ * If the world doesn't override it, then a random location from the {@link SpawnPool}, or the default spawn location if the pool is empty or disabled.<br>
+ * Or null if none of these are set for a loaded world.
+ */
+public static @Nullable Location getSpawn(@NotNull World world) {
+  Resolved override = get(world);
+
+  if (override == null || override.spawn == null) {
+    Location random = SpawnPool.take();
+    return random != null ? random : Util.getDefaultSpawn();
+  }
+
+  return override.spawn.clone();
+}
+
+/**
+ * @param world The given world.
+ * @return True if the given world overrides the spawn location, so players aren't spawned at locations from the {@link SpawnPool} in it.
+ */
+public static boolean overridesSpawn(@NotNull World world) {
+  Resolved override = get(world);
+  return override != null && override.spawn != null;
+}
+
+/**
+ * @param world The given world.
+ * @return The login occurrence for players joining in the given world.
+ */
+public static @NotNull Config.Occurrence getLogin(@NotNull World world) {
+  Resolved override = get(world);
+  return override == null ? Config.get().login : override.login;
+}
+
+/**
+ * @param world The given world.
+ * @return The onSpawn occurrence for players respawning from the given world.
+ */
+public static @NotNull Config.Occurrence getOnSpawn(@NotNull World world) {
+  Resolved override = get(world);
+  return override == null ? Config.get().onSpawn : override.onSpawn;
+}
+
+/**
+ Makes the overrides be resolved again the next time they are used.
+ */
+public static void invalidate() {
+  resolvedConfig = null;
+}
+
+/**
+ * @param world The given world.
+ * @return The resolved override for the given world, or null if it doesn't have one.
+ */
+private static @Nullable Resolved get(@NotNull World world) {
+  ConfigSnapshot config = Config.get();
+
+  if (resolvedConfig != config) {
+    resolve(config);
+  }
+
+  if (resolved.isEmpty()) return null;
+  return resolved.get(world.getUID());
+}
+
+/**
+ Resolves the overrides in the given configs for each loaded world.
+ * @param config The given configs.
+ */
+private static void resolve(@NotNull ConfigSnapshot config) {
+  resolved.clear();
+
+  for (WorldOverride override : config.worlds.values()) {
+    World world = Bukkit.getWorld(override.worldName);
+    if (world == null) continue;
+
+    Location spawn = override.hasSpawn ? new Location(world, override.x, override.y, override.z, override.yaw, override.pitch) : null;
+
+    resolved.put(world.getUID(), new Resolved(spawn,
+        override.login == null ? config.login : override.login,
+        override.onSpawn == null ? config.onSpawn : override.onSpawn
+    ));
+  }
+
+  resolvedConfig = config;
+}
+
+/**
+ An override with any unset values filled in from the global configs.
+ */
+private record Resolved(@Nullable Location spawn, Config.Occurrence login, Config.Occurrence onSpawn) {}
+
+}
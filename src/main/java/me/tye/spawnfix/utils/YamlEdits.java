@@ -0,0 +1,128 @@
+package me.tye.spawnfix.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ Edits the values of keys in yaml content as plain text, so the comments & layout of the file are kept.<br>
+ This doesn't use any of the server, so it can be used from any thread.
+ */
+public final class YamlEdits {
+
+private YamlEdits() {}
+
+/**
+ Replaces the values of the given keys in the given yaml content. Comments, blank lines & line endings are kept as they are, including comments after the replaced values.
+ * @param edits The keys, in the format "example.key1", mapped to the new strings to overwrite their old values with.
+ * @param fileContent The given yaml content.
+ * @return The yaml content with the new values.
+ * @throws IOException If any of the keys couldn't be found.
+ */
+public static @NotNull String replaceValues(@NotNull Map<String,String> edits, @NotNull String fileContent) throws IOException {
+  StringBuilder newContent = new StringBuilder(fileContent.length() + 64);
+  HashSet<String> found = new HashSet<>();
+
+  //The indentation & name of each key that the current line is nested in.
+  ArrayDeque<Integer> parentIndents = new ArrayDeque<>();
+  ArrayDeque<String> parentKeys = new ArrayDeque<>();
+
+  int lineStart = 0;
+  while (lineStart <= fileContent.length()) {
+    int lineEnd = fileContent.indexOf('\n', lineStart);
+    if (lineEnd == -1) lineEnd = fileContent.length();
+
+    //Carriage returns are kept with the line ending rather than the line.
+    int contentEnd = lineEnd;
+    if (contentEnd > lineStart && fileContent.charAt(contentEnd-1) == '\r') contentEnd--;
+
+    String line = fileContent.substring(lineStart, contentEnd);
+    String strippedLine = line.stripLeading();
+    int colon = strippedLine.indexOf(':');
+
+    //Blank lines, comments & lines without a key are kept as they are.
+    if (strippedLine.isEmpty() || strippedLine.startsWith("#") || colon == -1) {
+      newContent.append(fileContent, lineStart, Math.min(lineEnd+1, fileContent.length()));
+      lineStart = lineEnd+1;
+      continue;
+    }
+
+    int indent = line.length() - strippedLine.length();
+    while (!parentIndents.isEmpty() && parentIndents.peek() >= indent) {
+      parentIndents.pop();
+      parentKeys.pop();
+    }
+
+    parentIndents.push(indent);
+    parentKeys.push(strippedLine.substring(0, colon).trim());
+
+    StringJoiner keyJoiner = new StringJoiner(".");
+    parentKeys.descendingIterator().forEachRemaining(keyJoiner::add);
+
+    String key = keyJoiner.toString();
+    String value = edits.get(key);
+
+    if (value == null) {
+      newContent.append(fileContent, lineStart, Math.min(lineEnd+1, fileContent.length()));
+    } else {
+      found.add(key);
+      newContent.append(line, 0, indent+colon+1)
+                .append(' ')
+                .append(value)
+                .append(line, commentStart(line, indent+colon+1), line.length())
+                .append(fileContent, contentEnd, Math.min(lineEnd+1, fileContent.length()));
+    }
+
+    lineStart = lineEnd+1;
+  }
+
+  for (String key : edits.keySet()) {
+    if (found.contains(key)) continue;
+
+    throw new IOException("Unable to find "+key+" in external Yaml file.");
+  }
+
+  return newContent.toString();
+}
+
+/**
+ Finds where the comment after the value on the given line starts. A "#" only starts a comment if it's after whitespace & isn't within quotes.
+ * @param line The given line.
+ * @param valueStart The index the value starts at, after the colon of the key.
+ * @return The index of the whitespace before the comment, or the length of the line if there is no comment.
+ */
+private static int commentStart(@NotNull String line, int valueStart) {
+  char quote = 0;
+
+  for (int i = valueStart; i < line.length(); i++) {
+    char character = line.charAt(i);
+
+    if (quote != 0) {
+      if (character == quote) quote = 0;
+      continue;
+    }
+
+    if (character == '"' || character == '\'') {
+      quote = character;
+      continue;
+    }
+
+    if (character != '#' || !Character.isWhitespace(line.charAt(i-1))) continue;
+
+    //The whitespace before the comment is kept too, so the comment stays lined up.
+    int start = i;
+    while (start > valueStart && Character.isWhitespace(line.charAt(start-1))) {
+      start--;
+    }
+
+    return start;
+  }
+
+  return line.length();
+}
+
+}
@@ -0,0 +1,307 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ Runs the correction engine & its teleports on a fake server, one scheduler tick at a time.
+ */
+class CorrectionEngineTest {
+
+private FakeServer server;
+private FakeServer.FakeWorld world;
+
+@BeforeEach
+void setUp() {
+  server = FakeServer.install();
+  world = server.addWorld();
+
+  publishConfig(Map.of());
+  CorrectionEngine.start(server.plugin);
+}
+
+@AfterEach
+void tearDown() {
+  CorrectionEngine.stop();
+  ChunkLoader.useAsyncLoader(null);
+}
+
+@Test
+void teleportsOnTheSecondTickThenOnlyChecks() {
+  Location target = loaded(0, 64, 0);
+  FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+
+  CorrectionEngine.schedule(player.proxy, target, false);
+
+  server.tick();
+  assertEquals(List.of(), player.teleportTicks());
+
+  server.tick();
+  assertEquals(List.of(2L), player.teleportTicks());
+  assertEquals(0.0, player.location().distanceSquared(target));
+
+  //The player stays at the target, so the other two runs only check them.
+  server.tick(3);
+  assertEquals(1, CorrectionEngine.liveCorrections());
+
+  server.tick();
+  assertEquals(List.of(2L), player.teleportTicks());
+  assertEquals(0, CorrectionEngine.liveCorrections());
+}
+
+@Test
+void teleportsAgainIfMovedOff() {
+  Location target = loaded(0, 64, 0);
+  FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+
+  CorrectionEngine.schedule(player.proxy, target, false);
+  server.tick(2);
+
+  player.move(at(5, 64, 5));
+  server.tick(2);
+
+  assertEquals(List.of(2L, 4L), player.teleportTicks());
+}
+
+@Test
+void verifyDoesNotTeleportPlayersAlreadyThere() {
+  Location target = loaded(0, 64, 0);
+  FakeServer.FakePlayer player = server.addPlayer(target);
+
+  CorrectionEngine.verify(player.proxy, target, false);
+  server.tick(10);
+
+  assertEquals(List.of(), player.teleportTicks());
+  assertEquals(0, CorrectionEngine.liveCorrections());
+}
+
+@Test
+void teleportsAreSpreadOverTicks() {
+  publishConfig(Map.of(Config.teleport_maxPerTick, 20));
+
+  Location target = loaded(0, 64, 0);
+  ArrayList<FakeServer.FakePlayer> players = new ArrayList<>();
+  for (int i = 0; i < 50; i++) {
+    FakeServer.FakePlayer player = server.addPlayer(at(100, 64, i));
+    players.add(player);
+    CorrectionEngine.schedule(player.proxy, target, false);
+  }
+
+  server.tick(4);
+
+  assertEquals(List.of(20, 20, 10), teleportsOnTicks(players, 2, 4));
+}
+
+@Test
+void priorityCorrectionsRunFirst() {
+  publishConfig(Map.of(Config.teleport_maxPerTick, 1));
+
+  Location target = loaded(0, 64, 0);
+  FakeServer.FakePlayer returning = server.addPlayer(at(100, 64, 100));
+  FakeServer.FakePlayer firstJoin = server.addPlayer(at(100, 64, 100));
+
+  CorrectionEngine.schedule(returning.proxy, target, false);
+  CorrectionEngine.schedule(firstJoin.proxy, target, true);
+
+  server.tick(3);
+
+  assertEquals(List.of(2L), firstJoin.teleportTicks());
+  assertEquals(List.of(3L), returning.teleportTicks());
+}
+
+@Test
+void waitsForChunkLoadsWithinTheBudget() {
+  publishConfig(Map.of(Config.teleport_chunkLoadsPerTick, 1));
+
+  ArrayList<FakeServer.FakePlayer> players = new ArrayList<>();
+  for (int i = 0; i < 3; i++) {
+    //Each target is in a different chunk, none of which are loaded.
+    Location target = at(i*16, 64, 0);
+    FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+    players.add(player);
+    CorrectionEngine.schedule(player.proxy, target, false);
+  }
+
+  server.tick(4);
+
+  assertEquals(List.of(1, 1, 1), teleportsOnTicks(players, 2, 4));
+  assertEquals(3, world.syncLoads());
+}
+
+@Test
+void waitsForAsyncChunkLoadsRequestingEachChunkOnce() {
+  ChunkLoader.useAsyncLoader(FakeServer.asyncLoader);
+
+  //Every target is in the same chunk, which isn't loaded.
+  ArrayList<FakeServer.FakePlayer> players = new ArrayList<>();
+  for (int i = 0; i < 3; i++) {
+    FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+    players.add(player);
+    CorrectionEngine.schedule(player.proxy, at(i, 64, 0), false);
+  }
+
+  server.tick(3);
+
+  assertEquals(List.of(0, 0), teleportsOnTicks(players, 2, 3));
+  assertEquals(1, world.asyncRequests());
+  assertEquals(0, world.syncLoads());
+
+  world.finishAsyncLoads();
+  server.tick();
+
+  assertEquals(List.of(3), teleportsOnTicks(players, 4, 4));
+  assertEquals(1, world.asyncRequests());
+  assertEquals(0, world.syncLoads());
+}
+
+@Test
+void cancelledCorrectionsDontRun() {
+  Location target = loaded(0, 64, 0);
+  FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+
+  CorrectionEngine.schedule(player.proxy, target, false);
+  CorrectionEngine.cancel(player.uuid);
+  server.tick(10);
+
+  assertEquals(List.of(), player.teleportTicks());
+  assertEquals(0, CorrectionEngine.liveCorrections());
+}
+
+@Test
+void cancellingDuringATickRemovesTheCorrectionAfterIt() {
+  Location target = loaded(0, 64, 0);
+  FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+
+  //Like a plugin cancelling the correction when the player teleports, such as by changing world.
+  player.onTeleport(teleported -> CorrectionEngine.cancel(teleported.uuid));
+
+  CorrectionEngine.schedule(player.proxy, target, false);
+  server.tick(2);
+
+  assertEquals(List.of(2L), player.teleportTicks());
+  assertEquals(0, CorrectionEngine.liveCorrections());
+
+  player.move(at(5, 64, 5));
+  server.tick(10);
+  assertEquals(List.of(2L), player.teleportTicks());
+}
+
+@Test
+void newCorrectionReplacesThePendingOne() {
+  Location first = loaded(0, 64, 0);
+  Location second = loaded(32, 64, 32);
+  FakeServer.FakePlayer player = server.addPlayer(at(100, 64, 100));
+
+  CorrectionEngine.schedule(player.proxy, first, false);
+  server.tick();
+  CorrectionEngine.schedule(player.proxy, second, false);
+
+  assertEquals(1, CorrectionEngine.liveCorrections());
+
+  server.tick(3);
+  assertEquals(List.of(3L), player.teleportTicks());
+  assertEquals(0.0, player.location().distanceSquared(second));
+}
+
+@Test
+void stopCancelsTheTask() {
+  assertEquals(1, server.activeTimers());
+
+  CorrectionEngine.stop();
+
+  assertEquals(0, server.activeTimers());
+  assertEquals(0, CorrectionEngine.liveCorrections());
+}
+
+/**
+ * @param players The given players.
+ * @param from The first tick.
+ * @param to The last tick, inclusive.
+ * @return The amount of the given players that were teleported on each tick in the given range.
+ */
+private static List<Integer> teleportsOnTicks(List<FakeServer.FakePlayer> players, long from, long to) {
+  ArrayList<Integer> counts = new ArrayList<>();
+  for (long tick = from; tick <= to; tick++) {
+    int count = 0;
+    for (FakeServer.FakePlayer player : players) {
+      if (player.teleportTicks().contains(tick)) count++;
+    }
+
+    counts.add(count);
+  }
+
+  return counts;
+}
+
+private Location at(double x, double y, double z) {
+  return new Location(world.proxy, x, y, z);
+}
+
+/**
+ * @return A location in a chunk that is already loaded.
+ */
+private Location loaded(double x, double y, double z) {
+  Location location = at(x, y, z);
+  world.loadChunk(location);
+  return location;
+}
+
+/**
+ Publishes configs for the tests, with the given configs changed.<br>
+ There is no time limit per tick, so the results don't depend on how fast the tests run.
+ * @param changes The configs to change.
+ */
+private static void publishConfig(Map<Config,Object> changes) {
+  EnumMap<Config,Object> values = new EnumMap<>(Config.class);
+  values.put(Config.default_worldName, "world");
+  values.put(Config.default_x, 0);
+  values.put(Config.default_y, 64);
+  values.put(Config.default_z, 0);
+  values.put(Config.default_yaw, 0.0);
+  values.put(Config.default_pitch, 0.0);
+
+  values.put(Config.teleport_times, 3);
+  values.put(Config.teleport_retryInterval, 2);
+  values.put(Config.teleport_verify, true);
+  values.put(Config.teleport_tolerance, 0.5);
+  values.put(Config.teleport_rotationTolerance, 10.0);
+  values.put(Config.teleport_stableChecks, 0);
+  values.put(Config.teleport_backoff, 1.0);
+  values.put(Config.teleport_chunkLoadsPerTick, 4);
+  values.put(Config.teleport_maxPerTick, 0);
+  values.put(Config.teleport_maxMicrosPerTick, 0);
+  values.put(Config.teleport_cancelOnWorldChange, false);
+  values.put(Config.teleport_setSpawnLocation, false);
+  values.put(Config.teleport_safeCheck, false);
+  values.put(Config.teleport_safeRadius, 8);
+
+  values.put(Config.randomSpawn_enabled, false);
+  values.put(Config.randomSpawn_radius, 64);
+  values.put(Config.randomSpawn_poolSize, 32);
+  values.put(Config.randomSpawn_lowWater, 8);
+  values.put(Config.randomSpawn_checksPerTick, 1);
+
+  values.put(Config.checkpoint_interval, 0);
+  values.put(Config.checkpoint_minDistance, 1.0);
+
+  values.put(Config.login, "every");
+  values.put(Config.onSpawn, "every");
+  values.put(Config.lang, "eng");
+  values.put(Config.perPlayerLang, false);
+  values.put(Config.autoReload, false);
+  values.put(Config.metrics_dumpInterval, 0);
+
+  values.putAll(changes);
+  Config.publish(new ConfigSnapshot(values, Map.of()));
+}
+
+}
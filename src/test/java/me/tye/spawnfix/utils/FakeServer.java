@@ -0,0 +1,515 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ A server with only the parts that SpawnFix uses, for running it without a real server.<br>
+ The server, plugin, worlds, players & scheduler are proxies of the Bukkit interfaces, so any method that isn't faked here throws.
+ Ticks only pass when {@link #tick()} is called. Tasks scheduled to run asynchronously are run on the ticks too, so every run is the same.
+ */
+final class FakeServer {
+
+private static @Nullable FakeServer installed = null;
+
+/**
+ The data folder of the plugin, which is a new temporary folder for each run.
+ */
+final File dataFolder;
+
+/**
+ A plugin to own the scheduled tasks & to give SpawnFix its files & logger.
+ */
+final Plugin plugin = proxy(Plugin.class, (self, method, args) -> switch (method.getName()) {
+  case "getName" -> "SpawnFix";
+  case "getLogger" -> Logger.getLogger("SpawnFix");
+  case "getDataFolder" -> dataFolder();
+  case "isEnabled" -> true;
+  case "getResource" -> FakeServer.class.getClassLoader().getResourceAsStream((String) args[0]);
+  default -> unsupported(method);
+});
+
+private final HashMap<UUID, FakeWorld> worlds = new HashMap<>();
+private final HashMap<UUID, FakePlayer> players = new HashMap<>();
+private final ArrayList<Timer> timers = new ArrayList<>();
+
+private long currentTick = 0;
+private long lastTickNanos = 0;
+
+private final BukkitScheduler scheduler = proxy(BukkitScheduler.class, (self, method, args) -> {
+  if (args == null || args.length < 2 || !(args[1] instanceof Runnable runnable)) return unsupported(method);
+
+  boolean async = method.getName().endsWith("Asynchronously");
+  return switch (method.getName()) {
+    case "runTaskTimer", "runTaskTimerAsynchronously" -> schedule(new Timer(runnable, currentTick + Math.max(1, (long) args[2]), Math.max(1, (long) args[3]), async));
+    case "runTask", "runTaskAsynchronously" -> schedule(new Timer(runnable, currentTick + 1, 0, async));
+    case "runTaskLater", "runTaskLaterAsynchronously" -> schedule(new Timer(runnable, currentTick + Math.max(1, (long) args[2]), 0, async));
+    default -> unsupported(method);
+  };
+});
+
+private FakeServer() {
+  try {
+    dataFolder = Files.createTempDirectory("SpawnFix").toFile();
+  } catch (IOException e) {
+    throw new UncheckedIOException(e);
+  }
+}
+
+/**
+ Sets the fake server as the server for Bukkit & the fake plugin as the plugin for SpawnFix, the first time this is called.
+ Bukkit only allows the server to be set once, & SpawnFix keeps the files it found from the first plugin, so the same fake server is used by every test.
+ * @return The fake server, emptied of any worlds, players & tasks from earlier tests.
+ */
+static synchronized @NotNull FakeServer install() {
+  if (installed == null) {
+    installed = new FakeServer();
+    Bukkit.setServer(installed.proxyServer());
+    Util.init(installed.plugin);
+  }
+
+  installed.worlds.clear();
+  installed.players.clear();
+  installed.timers.clear();
+  installed.currentTick = 0;
+  return installed;
+}
+
+/**
+ Runs one tick of the scheduler, running the timers that are due on it in the order they were scheduled.<br>
+ The tasks that would run on the main thread are run first, then the ones that would run asynchronously, so they can be timed separately.
+ */
+void tick() {
+  currentTick++;
+
+  long start = System.nanoTime();
+  runDue(false);
+  lastTickNanos = System.nanoTime() - start;
+
+  runDue(true);
+
+  timers.removeIf(timer -> timer.cancelled);
+}
+
+/**
+ Runs the timers that are due on this tick.
+ * @param async Whether to run the timers that would run asynchronously or the ones that would run on the main thread.
+ */
+private void runDue(boolean async) {
+  for (Timer timer : new ArrayList<>(timers)) {
+    if (timer.async != async || timer.cancelled || timer.nextRun > currentTick) continue;
+
+    //Tasks that only run once have no period.
+    timer.nextRun = currentTick + timer.period;
+    if (timer.period == 0) timer.cancelled = true;
+    timer.runnable.run();
+  }
+}
+
+/**
+ * @return The nanoseconds the last tick spent running the tasks that would run on the main thread.
+ */
+long lastTickNanos() {
+  return lastTickNanos;
+}
+
+/**
+ Runs the given amount of ticks.
+ * @param ticks The given amount.
+ */
+void tick(int ticks) {
+  for (int i = 0; i < ticks; i++) {
+    tick();
+  }
+}
+
+/**
+ * @return The amount of ticks that have been run.
+ */
+long currentTick() {
+  return currentTick;
+}
+
+/**
+ * @return The amount of tasks that are waiting to run, including repeating ones.
+ */
+int activeTimers() {
+  return (int) timers.stream().filter(timer -> !timer.cancelled).count();
+}
+
+/**
+ Adds a loaded world with none of its chunks loaded.
+ * @return The new world.
+ */
+@NotNull FakeWorld addWorld() {
+  UUID uuid = UUID.randomUUID();
+  return addWorld("world-" + uuid, uuid);
+}
+
+/**
+ Adds a loaded world with the given name & none of its chunks loaded.
+ * @param name The given name.
+ * @return The new world.
+ */
+@NotNull FakeWorld addWorld(@NotNull String name) {
+  return addWorld(name, UUID.randomUUID());
+}
+
+private @NotNull FakeWorld addWorld(@NotNull String name, @NotNull UUID uuid) {
+  FakeWorld world = new FakeWorld(name, uuid);
+  worlds.put(world.uuid, world);
+  return world;
+}
+
+/**
+ Adds an online player at the given location.
+ * @param location The given location.
+ * @return The new player.
+ */
+@NotNull FakePlayer addPlayer(@NotNull Location location) {
+  FakePlayer player = new FakePlayer(UUID.randomUUID(), location.clone());
+  players.put(player.uuid, player);
+  return player;
+}
+
+/**
+ Takes the given player offline. Their player data is kept, so they can join again with {@link #reconnect(FakePlayer, Location)}.
+ * @param player The given player.
+ */
+void disconnect(@NotNull FakePlayer player) {
+  players.remove(player.uuid);
+}
+
+/**
+ Brings the given offline player back online at the given location, as if the server spawned them there.
+ * @param player The given player.
+ * @param location The given location.
+ */
+void reconnect(@NotNull FakePlayer player, @NotNull Location location) {
+  player.move(location);
+  players.put(player.uuid, player);
+}
+
+private @NotNull File dataFolder() {
+  return dataFolder;
+}
+
+private @NotNull BukkitTask schedule(@NotNull Timer timer) {
+  timers.add(timer);
+
+  return proxy(BukkitTask.class, (self, method, args) -> switch (method.getName()) {
+    case "cancel" -> {
+      timer.cancelled = true;
+      yield null;
+    }
+    case "isCancelled" -> timer.cancelled;
+    default -> unsupported(method);
+  });
+}
+
+private @NotNull Server proxyServer() {
+  return proxy(Server.class, (self, method, args) -> switch (method.getName()) {
+    case "getLogger" -> Logger.getLogger("FakeServer");
+    case "getName", "getVersion", "getBukkitVersion" -> "fake";
+    case "getScheduler" -> scheduler;
+    case "isPrimaryThread" -> true;
+    case "getWorlds" -> worlds.values().stream().map(world -> world.proxy).toList();
+    case "getOnlinePlayers" -> players.values().stream().map(player -> player.proxy).toList();
+    case "getPlayer" -> {
+      if (!(args[0] instanceof UUID uuid)) yield unsupported(method);
+
+      FakePlayer player = players.get(uuid);
+      yield player == null ? null : player.proxy;
+    }
+    case "getWorld" -> {
+      if (args[0] instanceof String name) {
+        yield worlds.values().stream().filter(world -> world.name.equals(name)).map(world -> world.proxy).findFirst().orElse(null);
+      }
+      if (!(args[0] instanceof UUID uuid)) yield unsupported(method);
+
+      FakeWorld world = worlds.get(uuid);
+      yield world == null ? null : world.proxy;
+    }
+    default -> unsupported(method);
+  });
+}
+
+/**
+ Makes a proxy of the given interface. The methods of Object are answered by the proxy itself, so proxies are only equal to themselves.
+ * @param type The given interface.
+ * @param handler Answers the other methods.
+ * @param extra Any other interfaces for the proxy to implement.
+ * @return The proxy.
+ */
+private static <T> @NotNull T proxy(@NotNull Class<T> type, @NotNull InvocationHandler handler, @NotNull Class<?>... extra) {
+  Class<?>[] types = new Class<?>[extra.length+1];
+  types[0] = type;
+  System.arraycopy(extra, 0, types, 1, extra.length);
+
+  Object proxy = Proxy.newProxyInstance(FakeServer.class.getClassLoader(), types, (self, method, args) -> switch (method.getName()) {
+    case "equals" -> method.getParameterCount() == 1 ? self == args[0] : handler.invoke(self, method, args);
+    case "hashCode" -> method.getParameterCount() == 0 ? System.identityHashCode(self) : handler.invoke(self, method, args);
+    case "toString" -> method.getParameterCount() == 0 ? "Fake" + type.getSimpleName() : handler.invoke(self, method, args);
+    default -> handler.invoke(self, method, args);
+  });
+
+  return type.cast(proxy);
+}
+
+@SuppressWarnings("unchecked")
+private static @NotNull PersistentDataType<Object, Object> dataType(@NotNull Object type) {
+  return (PersistentDataType<Object, Object>) type;
+}
+
+private static Object unsupported(@NotNull Method method) {
+  throw new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "#" + method.getName() + " isn't faked.");
+}
+
+/**
+ A scheduled task. Tasks that only run once have a period of 0.
+ */
+private static final class Timer {
+  private final Runnable runnable;
+  private final long period;
+  private final boolean async;
+  private long nextRun;
+  private boolean cancelled = false;
+
+  private Timer(Runnable runnable, long firstRun, long period, boolean async) {
+    this.runnable = runnable;
+    this.nextRun = firstRun;
+    this.period = period;
+    this.async = async;
+  }
+}
+
+/**
+ The part of Paper's World that loads chunks asynchronously, which the Spigot API doesn't have.
+ */
+interface AsyncChunks {
+  @NotNull CompletableFuture<Object> getChunkAtAsync(int x, int z);
+}
+
+/**
+ Loads chunks of fake worlds asynchronously, for {@link ChunkLoader#useAsyncLoader(MethodHandle)}. The chunks only finish loading when {@link FakeWorld#finishAsyncLoads()} is called.
+ */
+static final MethodHandle asyncLoader;
+
+static {
+  try {
+    asyncLoader = MethodHandles.lookup().findVirtual(AsyncChunks.class, "getChunkAtAsync", MethodType.methodType(CompletableFuture.class, int.class, int.class));
+  } catch (NoSuchMethodException | IllegalAccessException e) {
+    throw new ExceptionInInitializerError(e);
+  }
+}
+
+/**
+ A world whose chunks are only loaded when they're loaded synchronously, when their asynchronous loads are finished, or when marked as loaded by a test.
+ */
+static final class FakeWorld {
+  final String name;
+  final UUID uuid;
+  final World proxy;
+
+  private final HashSet<Long> loadedChunks = new HashSet<>();
+  private final LinkedHashMap<Long, CompletableFuture<Object>> asyncLoads = new LinkedHashMap<>();
+  private int syncLoads = 0;
+  private int asyncRequests = 0;
+
+  private FakeWorld(String name, UUID uuid) {
+    this.name = name;
+    this.uuid = uuid;
+    this.proxy = proxy(World.class, (self, method, args) -> switch (method.getName()) {
+      case "getUID" -> uuid;
+      case "getName" -> name;
+      case "isChunkLoaded" -> {
+        if (args == null || args.length != 2) yield unsupported(method);
+        yield loadedChunks.contains(chunk((int) args[0], (int) args[1]));
+      }
+      case "getChunkAt" -> {
+        if (args == null || args.length != 2 || !(args[0] instanceof Integer)) yield unsupported(method);
+
+        loadedChunks.add(chunk((int) args[0], (int) args[1]));
+        syncLoads++;
+        yield null;
+      }
+      case "getChunkAtAsync" -> {
+        if (args == null || args.length != 2 || !(args[0] instanceof Integer)) yield unsupported(method);
+
+        //Like Paper, a chunk that is already loading isn't loaded again.
+        asyncRequests++;
+        yield asyncLoads.computeIfAbsent(chunk((int) args[0], (int) args[1]), key -> new CompletableFuture<>());
+      }
+      default -> unsupported(method);
+    }, AsyncChunks.class);
+  }
+
+  /**
+   Finishes loading the chunks that were requested to load asynchronously, completing their futures on the calling thread like Paper does on the main thread.
+   */
+  void finishAsyncLoads() {
+    ArrayList<CompletableFuture<Object>> finishing = new ArrayList<>(asyncLoads.values());
+    loadedChunks.addAll(asyncLoads.keySet());
+    asyncLoads.clear();
+
+    finishing.forEach(future -> future.complete(null));
+  }
+
+  /**
+   * @return The amount of times chunks have been requested to load asynchronously, including chunks that were already loading.
+   */
+  int asyncRequests() {
+    return asyncRequests;
+  }
+
+  /**
+   Marks the chunk at the given location as loaded.
+   * @param location The given location.
+   */
+  void loadChunk(@NotNull Location location) {
+    loadedChunks.add(chunk(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+  }
+
+  /**
+   * @return The amount of chunks that have been loaded synchronously.
+   */
+  int syncLoads() {
+    return syncLoads;
+  }
+
+  private static long chunk(int x, int z) {
+    return ((long) x << 32) | (z & 0xFFFFFFFFL);
+  }
+}
+
+/**
+ A player that records the ticks they were teleported on.
+ */
+final class FakePlayer {
+  final UUID uuid;
+  final Player proxy;
+
+  private Location location;
+  private @Nullable Location bedSpawn = null;
+  private final ArrayList<Long> teleportTicks = new ArrayList<>();
+  private @Nullable Consumer<FakePlayer> onTeleport = null;
+
+  /**
+   The persistent data of the player, which is kept whilst they're offline. The values are kept in their primitive form, like on a real server.
+   */
+  private final HashMap<NamespacedKey, Object> data = new HashMap<>();
+  private final PersistentDataContainer dataContainer = proxy(PersistentDataContainer.class, (self, method, args) -> switch (method.getName()) {
+    case "set" -> {
+      PersistentDataType<Object, Object> type = dataType(args[1]);
+      data.put((NamespacedKey) args[0], type.toPrimitive(args[2], null));
+      yield null;
+    }
+    case "get" -> {
+      PersistentDataType<Object, Object> type = dataType(args[1]);
+      Object primitive = data.get((NamespacedKey) args[0]);
+      if (primitive == null) yield null;
+
+      if (!type.getPrimitiveType().isInstance(primitive)) throw new IllegalArgumentException("The stored value isn't a " + type.getPrimitiveType().getSimpleName() + ".");
+      yield type.fromPrimitive(primitive, null);
+    }
+    case "has" -> data.containsKey((NamespacedKey) args[0]);
+    case "remove" -> {
+      data.remove((NamespacedKey) args[0]);
+      yield null;
+    }
+    default -> unsupported(method);
+  });
+
+  private FakePlayer(UUID uuid, Location location) {
+    this.uuid = uuid;
+    this.location = location;
+    this.proxy = proxy(Player.class, (self, method, args) -> switch (method.getName()) {
+      case "getUniqueId" -> uuid;
+      case "getName" -> "player-" + uuid;
+      case "getPersistentDataContainer" -> dataContainer;
+      case "getBedSpawnLocation" -> bedSpawn == null ? null : bedSpawn.clone();
+      case "getLocation" -> {
+        if (args != null) yield unsupported(method);
+        yield this.location.clone();
+      }
+      case "getWorld" -> this.location.getWorld();
+      case "teleport" -> {
+        if (!(args[0] instanceof Location target)) yield unsupported(method);
+
+        this.location = target.clone();
+        teleportTicks.add(currentTick);
+        if (onTeleport != null) onTeleport.accept(this);
+        yield true;
+      }
+      default -> unsupported(method);
+    });
+  }
+
+  /**
+   Moves the player without teleporting them, as if they walked or another plugin moved them.
+   * @param location The location to move them to.
+   */
+  void move(@NotNull Location location) {
+    this.location = location.clone();
+  }
+
+  /**
+   * @param bedSpawn The location the player respawns at, or null if they haven't set one.
+   */
+  void setBedSpawn(@Nullable Location bedSpawn) {
+    this.bedSpawn = bedSpawn == null ? null : bedSpawn.clone();
+  }
+
+  /**
+   * @return A copy of the player's location.
+   */
+  @NotNull Location location() {
+    return location.clone();
+  }
+
+  /**
+   * @return The ticks this player was teleported on, in order.
+   */
+  @NotNull ArrayList<Long> teleportTicks() {
+    return teleportTicks;
+  }
+
+  /**
+   * @param onTeleport Run each time the player is teleported, like a listener of the teleport event.
+   */
+  void onTeleport(@Nullable Consumer<FakePlayer> onTeleport) {
+    this.onTeleport = onTeleport;
+  }
+}
+
+}
@@ -0,0 +1,278 @@
+package me.tye.spawnfix.utils;
+
+import me.tye.spawnfix.PlayerJoin;
+import me.tye.spawnfix.PlayerLeave;
+import me.tye.spawnfix.PlayerRespawn;
+import org.bukkit.Location;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.jetbrains.annotations.NotNull;
+import org.spigotmc.event.player.PlayerSpawnLocationEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static me.tye.spawnfix.utils.Util.*;
+
+/**
+ Runs SpawnFix on a {@link FakeServer} the way it runs on a real one, for simulating load without a server.<br>
+ The config & lang files are loaded from the defaults, the join index & location store are opened, & the join, leave & respawn listeners are given the same events a server would fire.<br>
+ Each tick is timed, & the peak amount of scheduled work, the teleports made & the memory retained are kept for a {@link Report}.
+ */
+final class LoadSimulation {
+
+final FakeServer server;
+
+/**
+ The world the default spawn is in.
+ */
+final FakeServer.FakeWorld world;
+
+private final ArrayList<FakeServer.FakePlayer> players = new ArrayList<>();
+private final ArrayList<Long> tickNanos = new ArrayList<>();
+private int peakCorrections = 0;
+private int peakTasks = 0;
+
+/**
+ The first tick that is recorded, & the heap in use before it.
+ */
+private long recordFrom = 1;
+private long startMemory = 0;
+
+/**
+ Enables SpawnFix on an emptied fake server, with the config.yml & lang files reset to their defaults.
+ */
+LoadSimulation() {
+  server = FakeServer.install();
+  world = server.addWorld("world");
+
+  try {
+    Files.deleteIfExists(configFile.toPath());
+    Files.deleteIfExists(new File(langFolder, "eng.yml").toPath());
+
+    makeRequiredFile(dataFolder, null, false);
+    makeRequiredFile(configFile, resource("config.yml"), true);
+    makeRequiredFile(langFolder, null, false);
+    makeRequiredFile(new File(langFolder, "eng.yml"), resource("lang/eng.yml"), true);
+  } catch (IOException e) {
+    throw new UncheckedIOException(e);
+  }
+
+  Config.init();
+  Lang.init();
+  Config.load();
+  Lang.load();
+
+  JoinIndex.load();
+  LastLocations.load();
+  CorrectionEngine.start();
+
+  record();
+}
+
+/**
+ Stops SpawnFix, writing the join index & location store like when the plugin is disabled.
+ */
+void disable() {
+  CorrectionEngine.stop();
+  JoinIndex.close();
+  LastLocations.close();
+}
+
+/**
+ Changes the given keys in the config.yml, then reloads it like "/sf reload" does.
+ * @param edits The keys, in the format "teleport.maxPerTick", mapped to their new values.
+ */
+void reloadConfig(@NotNull Map<String,String> edits) {
+  try {
+    writeYamlData(edits, configFile);
+  } catch (IOException e) {
+    throw new UncheckedIOException(e);
+  }
+
+  Config.publish(Config.parse());
+}
+
+/**
+ Makes a new player that has never joined & joins them at the given location.
+ * @param spawnedAt Where the server spawns them.
+ * @return The new player.
+ */
+@NotNull FakeServer.FakePlayer joinNew(@NotNull Location spawnedAt) {
+  FakeServer.FakePlayer player = server.addPlayer(spawnedAt);
+  players.add(player);
+
+  spawn(player, spawnedAt);
+  return player;
+}
+
+/**
+ Joins the given offline player at the given location, such as the spawn of the world if the server lost where they logged out.
+ * @param player The given player.
+ * @param spawnedAt Where the server spawns them.
+ */
+void join(@NotNull FakeServer.FakePlayer player, @NotNull Location spawnedAt) {
+  server.reconnect(player, spawnedAt);
+  spawn(player, spawnedAt);
+}
+
+/**
+ Fires the spawn location & join events for the given player, moving them to where the spawn location event left them.
+ */
+private void spawn(@NotNull FakeServer.FakePlayer player, @NotNull Location spawnedAt) {
+  PlayerSpawnLocationEvent spawnEvent = new PlayerSpawnLocationEvent(player.proxy, spawnedAt.clone());
+  PlayerJoin.setSpawnLocation(spawnEvent);
+  player.move(spawnEvent.getSpawnLocation());
+
+  PlayerJoin.PlayerSpawn(new PlayerJoinEvent(player.proxy, null));
+}
+
+/**
+ Fires the quit event for the given player, then takes them offline.
+ * @param player The given player.
+ */
+void quit(@NotNull FakeServer.FakePlayer player) {
+  PlayerLeave.PlayerLeaveEvent(new PlayerQuitEvent(player.proxy, null));
+  server.disconnect(player);
+}
+
+/**
+ Fires the respawn event for the given player, moving them to where the event left them.
+ * @param player The given player.
+ * @param respawnAt Where the server respawns them.
+ */
+void respawn(@NotNull FakeServer.FakePlayer player, @NotNull Location respawnAt) {
+  PlayerRespawnEvent respawnEvent = new PlayerRespawnEvent(player.proxy, respawnAt.clone(), false);
+  PlayerRespawn.playerRespawn(respawnEvent);
+  player.move(respawnEvent.getRespawnLocation());
+}
+
+/**
+ Throws away what was recorded so far, so only the ticks after this are in the {@link Report}.
+ */
+void record() {
+  tickNanos.clear();
+  peakCorrections = 0;
+  peakTasks = 0;
+
+  recordFrom = server.currentTick() + 1;
+  startMemory = retainedMemory();
+}
+
+/**
+ Runs one tick, timing the tasks that run on the main thread & recording the peak amount of scheduled work.
+ */
+void tick() {
+  server.tick();
+  tickNanos.add(server.lastTickNanos());
+
+  peakCorrections = Math.max(peakCorrections, CorrectionEngine.liveCorrections());
+  peakTasks = Math.max(peakTasks, server.activeTimers());
+}
+
+/**
+ Runs ticks until there are no corrections left.
+ * @param maxTicks The most ticks to run.
+ * @return The amount of ticks that were run.
+ * @throws AssertionError If there were still corrections left after the given amount of ticks.
+ */
+int runUntilIdle(int maxTicks) {
+  for (int ticks = 1; ticks <= maxTicks; ticks++) {
+    tick();
+    if (CorrectionEngine.liveCorrections() == 0) return ticks;
+  }
+
+  throw new AssertionError(CorrectionEngine.liveCorrections() + " corrections were still running after " + maxTicks + " ticks.");
+}
+
+/**
+ * @return Every player made by this simulation.
+ */
+@NotNull List<FakeServer.FakePlayer> players() {
+  return players;
+}
+
+/**
+ * @return The amount of teleports made on each recorded tick, by tick.
+ */
+@NotNull Map<Long, Integer> teleportsPerTick() {
+  HashMap<Long, Integer> perTick = new HashMap<>();
+  for (FakeServer.FakePlayer player : players) {
+    for (long tick : player.teleportTicks()) {
+      if (tick >= recordFrom) perTick.merge(tick, 1, Integer::sum);
+    }
+  }
+
+  return perTick;
+}
+
+/**
+ * @param name The name of the scenario that was run.
+ * @return What the simulation has recorded since {@link #record()} was last called.
+ */
+@NotNull Report report(@NotNull String name) {
+  long[] sorted = tickNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+  long total = Arrays.stream(sorted).sum();
+  int teleports = teleportsPerTick().values().stream().mapToInt(Integer::intValue).sum();
+
+  return new Report(name,
+      sorted.length,
+      sorted.length == 0 ? 0 : total / sorted.length,
+      sorted.length == 0 ? 0 : sorted[Math.min(sorted.length-1, (int) Math.ceil(sorted.length*0.99)-1)],
+      sorted.length == 0 ? 0 : sorted[sorted.length-1],
+      peakCorrections,
+      peakTasks,
+      teleports,
+      retainedMemory() - startMemory
+  );
+}
+
+/**
+ * @return The bytes of the heap still in use after collecting garbage.
+ */
+private static long retainedMemory() {
+  Runtime runtime = Runtime.getRuntime();
+  for (int i = 0; i < 3; i++) {
+    System.gc();
+  }
+
+  return runtime.totalMemory() - runtime.freeMemory();
+}
+
+private static @NotNull InputStream resource(@NotNull String path) {
+  InputStream resource = plugin.getResource(path);
+  if (resource == null) throw new IllegalStateException(path + " isn't on the classpath.");
+
+  return resource;
+}
+
+/**
+ What a simulation recorded.
+ * @param scenario The name of the scenario that was run.
+ * @param ticks The amount of ticks that were run.
+ * @param meanTickNanos The mean nanoseconds spent on the main thread each tick.
+ * @param p99TickNanos The 99th percentile of the nanoseconds spent on the main thread each tick.
+ * @param maxTickNanos The most nanoseconds spent on the main thread in one tick.
+ * @param peakCorrections The most corrections that were pending at the end of a tick.
+ * @param peakTasks The most tasks that were scheduled at the end of a tick.
+ * @param teleports The amount of teleports made.
+ * @param retainedBytes The growth of the heap in use since the recording started, including any new fake players.
+ */
+record Report(String scenario, int ticks, long meanTickNanos, long p99TickNanos, long maxTickNanos, int peakCorrections, int peakTasks, int teleports, long retainedBytes) {
+  @Override
+  public String toString() {
+    return String.format("%s: %d ticks, tick time mean %.1fus p99 %.1fus max %.1fus, peak corrections %d, peak tasks %d, teleports %d, retained %.1fKiB",
+        scenario, ticks, meanTickNanos/1000.0, p99TickNanos/1000.0, maxTickNanos/1000.0, peakCorrections, peakTasks, teleports, retainedBytes/1024.0);
+  }
+}
+
+}
@@ -0,0 +1,156 @@
+package me.tye.spawnfix.utils;
+
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ Simulates storms of joins & respawns with the default configs, checking every player ends up in the right place within the limits of the configs.<br>
+ What was recorded is printed, so the scenarios can be compared between changes.
+ */
+class LoadSimulationTest {
+
+private static final int players = 2_000;
+
+/**
+ The most ticks any scenario should take to finish.
+ */
+private static final int maxTicks = 5_000;
+
+private LoadSimulation simulation;
+
+@BeforeEach
+void setUp() {
+  simulation = new LoadSimulation();
+}
+
+@AfterEach
+void tearDown() {
+  simulation.disable();
+}
+
+@Test
+void reconnectStorm() {
+  Location[] logouts = joinAndLeave();
+
+  //The server lost where everyone logged out, so they all join at the spawn of the world.
+  simulation.record();
+  for (FakeServer.FakePlayer player : simulation.players()) {
+    simulation.join(player, spawn());
+  }
+  simulation.runUntilIdle(maxTicks);
+
+  LoadSimulation.Report report = simulation.report("reconnect storm");
+  System.out.println(report);
+
+  assertAtLogouts(logouts);
+  assertEquals(players, report.teleports());
+  assertTrue(maxTeleportsPerTick() <= Config.get().teleportMaxPerTick);
+}
+
+@Test
+void respawnWave() {
+  for (int i = 0; i < players; i++) {
+    FakeServer.FakePlayer player = simulation.joinNew(spawn());
+    if (i % 2 == 0) player.setBedSpawn(spread(i));
+  }
+  simulation.runUntilIdle(maxTicks);
+
+  //Everyone dies away from spawn at once, & the server respawns them all at the spawn of the world.
+  simulation.record();
+  for (int i = 0; i < players; i++) {
+    FakeServer.FakePlayer player = simulation.players().get(i);
+    player.move(spread(i+1));
+    simulation.respawn(player, spawn());
+  }
+  simulation.runUntilIdle(maxTicks);
+
+  System.out.println(simulation.report("respawn wave"));
+
+  for (int i = 0; i < players; i++) {
+    Location expected = i % 2 == 0 ? spread(i) : spawn();
+    assertEquals(0.0, simulation.players().get(i).location().distanceSquared(expected));
+  }
+  assertTrue(maxTeleportsPerTick() <= Config.get().teleportMaxPerTick);
+}
+
+@Test
+void reloadMidStorm() {
+  Location[] logouts = joinAndLeave();
+
+  simulation.record();
+  for (FakeServer.FakePlayer player : simulation.players()) {
+    simulation.join(player, spawn());
+  }
+
+  for (int i = 0; i < 20; i++) {
+    simulation.tick();
+  }
+  long reloadedOn = simulation.server.currentTick();
+  simulation.reloadConfig(Map.of("teleport.maxPerTick", "5"));
+
+  simulation.runUntilIdle(maxTicks);
+  System.out.println(simulation.report("reload mid-storm"));
+
+  assertAtLogouts(logouts);
+  assertEquals(5, Config.get().teleportMaxPerTick);
+
+  for (Map.Entry<Long, Integer> teleports : simulation.teleportsPerTick().entrySet()) {
+    if (teleports.getKey() <= reloadedOn) continue;
+    assertTrue(teleports.getValue() <= 5, teleports.getValue() + " teleports on tick " + teleports.getKey());
+  }
+}
+
+/**
+ Joins every player for the first time, then spreads them out & has them all leave.
+ * @return Where each player logged out.
+ */
+private Location[] joinAndLeave() {
+  for (int i = 0; i < players; i++) {
+    simulation.joinNew(spawn());
+  }
+  simulation.runUntilIdle(maxTicks);
+
+  Location[] logouts = new Location[players];
+  for (int i = 0; i < players; i++) {
+    FakeServer.FakePlayer player = simulation.players().get(i);
+    logouts[i] = spread(i);
+
+    player.move(logouts[i]);
+    simulation.quit(player);
+  }
+
+  return logouts;
+}
+
+private void assertAtLogouts(Location[] logouts) {
+  for (int i = 0; i < players; i++) {
+    assertEquals(0.0, simulation.players().get(i).location().distanceSquared(logouts[i]), "player " + i);
+  }
+}
+
+private int maxTeleportsPerTick() {
+  return simulation.teleportsPerTick().values().stream().mapToInt(Integer::intValue).max().orElse(0);
+}
+
+/**
+ * @return The default spawn, from the default configs.
+ */
+private Location spawn() {
+  return new Location(simulation.world.proxy, 0, 64, 0);
+}
+
+/**
+ * @param i The index of a player.
+ * @return A location for the player, spread over 64 chunks.
+ */
+private Location spread(int i) {
+  return new Location(simulation.world.proxy, (i % 8)*16 + 0.5, 70, ((i / 8) % 8)*16 + 0.5);
+}
+
+}
@@ -0,0 +1,224 @@
+package me.tye.spawnfix.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLocationStoreTest {
+
+private static final UUID world = new UUID(1, 2);
+
+@TempDir
+Path folder;
+
+@Test
+void putThenGet() throws IOException {
+  File file = folder.resolve("locations.dat").toFile();
+
+  try (Closeable store = new Closeable(file)) {
+    UUID player = UUID.randomUUID();
+    StoredLocation location = location(1);
+
+    assertNull(store.get(player));
+
+    store.put(player, location);
+    assertEquals(location, store.get(player));
+    assertEquals(1, store.size());
+
+    //Replacing a location doesn't add another record.
+    store.put(player, location(2));
+    assertEquals(location(2), store.get(player));
+    assertEquals(1, store.size());
+  }
+}
+
+@Test
+void removeKeepsOtherRecordsFindable() throws IOException {
+  File file = folder.resolve("locations.dat").toFile();
+  HashMap<UUID, StoredLocation> expected = new HashMap<>();
+
+  try (Closeable store = new Closeable(file)) {
+    //The table starts with 1024 slots, so 500 players make plenty of clusters to shift back.
+    ArrayList<UUID> players = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      UUID player = UUID.randomUUID();
+      players.add(player);
+      expected.put(player, location(i));
+      store.put(player, location(i));
+    }
+
+    for (int i = 0; i < players.size(); i += 2) {
+      assertTrue(store.remove(players.get(i)));
+      expected.remove(players.get(i));
+    }
+
+    assertFalse(store.remove(players.get(0)));
+    assertEquals(expected.size(), store.size());
+
+    for (int i = 0; i < players.size(); i++) {
+      assertEquals(expected.get(players.get(i)), store.get(players.get(i)));
+    }
+  }
+}
+
+@Test
+void growKeepsEveryRecordAcrossReopens() throws IOException {
+  File file = folder.resolve("locations.dat").toFile();
+  HashMap<UUID, StoredLocation> expected = new HashMap<>();
+
+  try (Closeable store = new Closeable(file)) {
+    //Enough players for the table to be doubled several times.
+    for (int i = 0; i < 5000; i++) {
+      UUID player = UUID.randomUUID();
+      expected.put(player, location(i));
+      store.put(player, location(i));
+    }
+
+    assertEquals(expected.size(), store.size());
+    expected.forEach((player, location) -> assertEquals(location, store.get(player)));
+  }
+
+  assertFalse(new File(file.getPath()+".resize").exists());
+
+  try (Closeable store = new Closeable(file)) {
+    assertEquals(expected.size(), store.size());
+    expected.forEach((player, location) -> assertEquals(location, store.get(player)));
+  }
+}
+
+@Test
+void interruptedResizeIsFinishedOnOpen() throws IOException {
+  File file = folder.resolve("locations.dat").toFile();
+  File resizeFile = new File(file.getPath()+".resize");
+  HashMap<UUID, StoredLocation> expected = new HashMap<>();
+
+  try (Closeable store = new Closeable(file)) {
+    for (int i = 0; i < 300; i++) {
+      UUID player = UUID.randomUUID();
+      expected.put(player, location(i));
+      store.put(player, location(i));
+    }
+  }
+
+  //Leaves the file as a resize would if the server stopped part way through inserting the records again.
+  try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+       FileChannel resize = FileChannel.open(resizeFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+    int capacity = readInt(channel, 8);
+    channel.transferTo(64, (long) capacity*64, resize);
+
+    ByteBuffer empty = ByteBuffer.allocate(capacity*64/2);
+    channel.write(empty, 64);
+
+    writeInt(channel, 12, 0);
+    writeInt(channel, 16, 1);
+  }
+
+  try (Closeable store = new Closeable(file)) {
+    assertEquals(expected.size(), store.size());
+    expected.forEach((player, location) -> assertEquals(location, store.get(player)));
+  }
+
+  assertFalse(resizeFile.exists());
+}
+
+@Test
+void lookupsDuringResizeSeeEveryRecord() throws Exception {
+  File file = folder.resolve("locations.dat").toFile();
+
+  try (Closeable store = new Closeable(file)) {
+    ArrayList<UUID> players = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      UUID player = UUID.randomUUID();
+      players.add(player);
+      store.put(player, location(i));
+    }
+
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 20_000; i++) {
+          store.put(UUID.randomUUID(), location(-1));
+        }
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    });
+
+    writer.start();
+
+    Random random = new Random(0);
+    while (writer.isAlive()) {
+      int index = random.nextInt(players.size());
+      assertEquals(location(index), store.get(players.get(index)));
+    }
+
+    writer.join();
+    assertNull(failure.get());
+    assertEquals(20_400, store.size());
+  }
+}
+
+@Test
+void scanVisitsEveryRecordAndReplacesThem() throws IOException {
+  File file = folder.resolve("locations.dat").toFile();
+
+  try (Closeable store = new Closeable(file)) {
+    for (int i = 0; i < 3000; i++) {
+      store.put(UUID.randomUUID(), location(i));
+    }
+
+    long cursor = 0;
+    int[] visited = {0};
+    do {
+      cursor = store.scan(cursor, 256, (player, location) -> {
+        visited[0]++;
+        return location(-1);
+      });
+    } while (cursor != -1);
+
+    assertEquals(3000, visited[0]);
+    store.scan(0, Integer.MAX_VALUE, (player, location) -> {
+      assertEquals(location(-1), location);
+      return null;
+    });
+  }
+}
+
+private static StoredLocation location(int seed) {
+  return new StoredLocation(world, seed, seed+0.5, -seed, seed/2f, -seed/4f);
+}
+
+private static int readInt(FileChannel channel, long position) throws IOException {
+  ByteBuffer buffer = ByteBuffer.allocate(4);
+  channel.read(buffer, position);
+  return buffer.getInt(0);
+}
+
+private static void writeInt(FileChannel channel, long position, int value) throws IOException {
+  channel.write(ByteBuffer.allocate(4).putInt(0, value), position);
+}
+
+/**
+ Lets a store be closed with try-with-resources.
+ */
+private static class Closeable extends MappedLocationStore implements AutoCloseable {
+  Closeable(File file) throws IOException {
+    super(file);
+  }
+}
+
+}